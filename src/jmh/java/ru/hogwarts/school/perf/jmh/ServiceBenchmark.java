@@ -0,0 +1,93 @@
+package ru.hogwarts.school.perf.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import ru.hogwarts.school.dto.AvatarDto;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.perf.PerfDataset;
+import ru.hogwarts.school.service.AvatarService;
+import ru.hogwarts.school.service.FacultyService;
+import ru.hogwarts.school.service.StudentService;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service hot paths against a seeded H2 database at several dataset sizes.
+ * Run with {@code mvn -Pjmh verify}; extra JMH options go in {@code -Djmh.args="..."}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class ServiceBenchmark {
+    private static final int AVATAR_PAGE_SIZE = 20;
+
+    @Param({"1000", "10000", "100000"})
+    public int students;
+
+    private ConfigurableApplicationContext context;
+    private StudentService studentService;
+    private FacultyService facultyService;
+    private AvatarService avatarService;
+    private int avatarPages;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = PerfDataset.start(students, WebApplicationType.NONE, Map.of());
+        studentService = context.getBean(StudentService.class);
+        facultyService = context.getBean(FacultyService.class);
+        avatarService = context.getBean(AvatarService.class);
+        avatarPages = Math.max(1, PerfDataset.avatarCount(students) / AVATAR_PAGE_SIZE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Student> findStudent() {
+        return studentService.findStudent(ThreadLocalRandom.current().nextLong(1, students + 1L));
+    }
+
+    @Benchmark
+    public List<Student> getStudentsByAgeBetween() {
+        int min = PerfDataset.MIN_AGE + ThreadLocalRandom.current().nextInt(PerfDataset.AGE_SPAN - 1);
+        return studentService.getStudentsByAgeBetween(min, min + 1);
+    }
+
+    @Benchmark
+    public String getLongestFacultyName() {
+        return facultyService.getLongestFacultyName();
+    }
+
+    @Benchmark
+    public Double getAverageAge() {
+        return studentService.getAverageAge();
+    }
+
+    @Benchmark
+    public Page<AvatarDto> getAllAvatars() {
+        return avatarService.getAllAvatars(ThreadLocalRandom.current().nextInt(avatarPages), AVATAR_PAGE_SIZE);
+    }
+}
@@ -0,0 +1,275 @@
+package ru.hogwarts.school.perf.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.hogwarts.school.perf.PerfDataset;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Closed-loop HTTP load generator. Boots the application on a seeded H2 database (see {@link PerfDataset}),
+ * drives a weighted mix of student, faculty and avatar calls from concurrent clients, and writes throughput
+ * and latency percentiles per operation as JSON.
+ * <p>
+ * Run with {@code mvn -Pload-test verify -Dload.args="--students=10000 --clients=32 --duration=PT30S"}.
+ * Options: {@code --students}, {@code --clients}, {@code --warmup}, {@code --duration}, {@code --report},
+ * {@code --async} (serve through the subsystem executors) and {@code --mix=name:weight,...} to re-weight
+ * or disable ({@code :0}) operations.
+ */
+public final class LoadHarness {
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final int students;
+    private final int clients;
+    private final Duration warmup;
+    private final Duration duration;
+    private final boolean async;
+    private final List<LoadOperation> operations;
+    private final Map<String, Recorder> recorders = new HashMap<>();
+    private final Map<String, LongAdder> errors = new HashMap<>();
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private LoadHarness(int students, int clients, Duration warmup, Duration duration, boolean async,
+                        Map<String, Integer> mix) {
+        this.students = students;
+        this.clients = clients;
+        this.warmup = warmup;
+        this.duration = duration;
+        this.async = async;
+        this.operations = operations(students).stream()
+                .map(operation -> operation.withWeight(mix.getOrDefault(operation.name(), operation.weight())))
+                .filter(operation -> operation.weight() > 0)
+                .toList();
+        if (operations.isEmpty()) {
+            throw new IllegalArgumentException("The request mix is empty");
+        }
+        for (LoadOperation operation : operations) {
+            recorders.put(operation.name(), new Recorder(HIGHEST_TRACKABLE_MICROS, 3));
+            errors.put(operation.name(), new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        LoadHarness harness = new LoadHarness(
+                Integer.parseInt(options.getOrDefault("students", "10000")),
+                Integer.parseInt(options.getOrDefault("clients", "32")),
+                Duration.parse(options.getOrDefault("warmup", "PT10S")),
+                Duration.parse(options.getOrDefault("duration", "PT30S")),
+                Boolean.parseBoolean(options.getOrDefault("async", "false")),
+                parseMix(options.getOrDefault("mix", "")));
+        Path report = Path.of(options.getOrDefault("report", "target/load-report.json"));
+
+        LoadReport result = harness.run();
+        Files.createDirectories(report.toAbsolutePath().getParent());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(report.toFile(), result);
+        print(result);
+        System.out.println("Report written to " + report.toAbsolutePath());
+    }
+
+    private LoadReport run() throws InterruptedException {
+        try (ConfigurableApplicationContext context = PerfDataset.start(students, WebApplicationType.SERVLET,
+                Map.of("server.port", "0", "school.async.enabled", String.valueOf(async)))) {
+            URI base = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port"));
+
+            drive(base, warmup);
+            recorders.values().forEach(Recorder::getIntervalHistogram);
+            errors.values().forEach(LongAdder::reset);
+
+            long start = System.nanoTime();
+            drive(base, duration);
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            return report(seconds);
+        }
+    }
+
+    /**
+     * Runs every client until the deadline. Each client sends its next request as soon as the previous
+     * response has arrived.
+     */
+    private void drive(URI base, Duration length) throws InterruptedException {
+        int[] cumulativeWeights = new int[operations.size()];
+        int totalWeight = 0;
+        for (int i = 0; i < operations.size(); i++) {
+            totalWeight += operations.get(i).weight();
+            cumulativeWeights[i] = totalWeight;
+        }
+        int weightBound = totalWeight;
+        long deadline = System.nanoTime() + length.toNanos();
+        CountDownLatch finished = new CountDownLatch(clients);
+        for (int client = 0; client < clients; client++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    Random random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < deadline) {
+                        int pick = random.nextInt(weightBound);
+                        int index = 0;
+                        while (cumulativeWeights[index] <= pick) {
+                            index++;
+                        }
+                        call(operations.get(index), base, random);
+                    }
+                } finally {
+                    finished.countDown();
+                }
+            }, "load-client-" + client);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        finished.await();
+    }
+
+    private void call(LoadOperation operation, URI base, Random random) {
+        HttpRequest request = operation.request().apply(base, random);
+        long start = System.nanoTime();
+        try {
+            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+            recorders.get(operation.name()).recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+            if (response.statusCode() >= 400) {
+                errors.get(operation.name()).increment();
+            }
+        } catch (IOException e) {
+            errors.get(operation.name()).increment();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private LoadReport report(double seconds) {
+        Histogram overall = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        List<LoadReport.OperationResult> results = new ArrayList<>();
+        long totalErrors = 0;
+        for (LoadOperation operation : operations) {
+            Histogram histogram = recorders.get(operation.name()).getIntervalHistogram();
+            long operationErrors = errors.get(operation.name()).sum();
+            overall.add(histogram);
+            totalErrors += operationErrors;
+            results.add(new LoadReport.OperationResult(operation.name(), operation.weight(),
+                    histogram.getTotalCount(), operationErrors, histogram.getTotalCount() / seconds,
+                    latency(histogram)));
+        }
+        return new LoadReport(students, clients, async, seconds, overall.getTotalCount(), totalErrors,
+                overall.getTotalCount() / seconds, latency(overall), results);
+    }
+
+    private static LoadReport.Latency latency(Histogram histogram) {
+        return new LoadReport.Latency(
+                histogram.getMean() / 1000.0,
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(95) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0);
+    }
+
+    private static List<LoadOperation> operations(int students) {
+        int faculties = PerfDataset.facultyCount(students);
+        int avatarPages = Math.max(1, PerfDataset.avatarCount(students) / 20);
+        return List.of(
+                get("student-get", 25, random -> "/student/" + id(random, students)),
+                get("student-faculty", 5, random -> "/student/" + id(random, students) + "/faculty"),
+                get("student-filter", 2, random -> {
+                    int age = PerfDataset.MIN_AGE + random.nextInt(PerfDataset.AGE_SPAN);
+                    return "/student/filter?min=" + age + "&max=" + age;
+                }),
+                get("student-search", 8, random -> "/student/search?q=" + (100 + random.nextInt(900))),
+                get("student-count", 4, random -> "/student/count"),
+                get("student-average-age", 4, random -> "/student/average-age"),
+                new LoadOperation("student-create", 2, (base, random) -> HttpRequest.newBuilder(base.resolve("/student"))
+                        .timeout(REQUEST_TIMEOUT)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(
+                                "{\"name\":\"Load " + UUID.randomUUID() + "\",\"age\":18}"))
+                        .build()),
+                get("faculty-get", 10, random -> "/faculty/" + id(random, faculties)),
+                get("faculty-students", 4, random -> "/faculty/" + id(random, faculties) + "/students"),
+                get("faculty-autocomplete", 6, random -> "/faculty/autocomplete?prefix=Faculty%20"
+                        + (1 + random.nextInt(9))),
+                get("faculty-longest-name", 4, random -> "/faculty/longest-name"),
+                get("avatar-get", 10, random -> "/avatar/"
+                        + id(random, PerfDataset.avatarCount(students)) * PerfDataset.STUDENTS_PER_AVATAR),
+                get("avatar-page", 6, random -> "/avatar?page=" + random.nextInt(avatarPages) + "&size=20"));
+    }
+
+    private static LoadOperation get(String name, int weight, Function<Random, String> path) {
+        return new LoadOperation(name, weight, (base, random) -> HttpRequest.newBuilder(base.resolve(path.apply(random)))
+                .timeout(REQUEST_TIMEOUT)
+                .GET()
+                .build());
+    }
+
+    private static long id(Random random, int count) {
+        return 1 + random.nextInt(Math.max(1, count));
+    }
+
+    private static void print(LoadReport report) {
+        System.out.printf("%n%-22s %9s %7s %10s %9s %9s %9s %9s%n",
+                "operation", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "p99.9 ms");
+        for (LoadReport.OperationResult operation : report.operations()) {
+            printRow(operation.name(), operation.requests(), operation.errors(), operation.throughput(),
+                    operation.latency());
+        }
+        printRow("TOTAL", report.requests(), report.errors(), report.throughput(), report.latency());
+    }
+
+    private static void printRow(String name, long requests, long errors, double throughput,
+                                 LoadReport.Latency latency) {
+        System.out.printf("%-22s %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f%n", name, requests, errors, throughput,
+                latency.p50(), latency.p95(), latency.p99(), latency.p999());
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            int separator = arg.indexOf('=');
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new HashMap<>();
+        for (String entry : mix.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected name:weight in --mix but got " + entry);
+            }
+            weights.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+        }
+        return weights;
+    }
+}
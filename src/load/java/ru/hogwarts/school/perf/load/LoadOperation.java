@@ -0,0 +1,17 @@
+package ru.hogwarts.school.perf.load;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.util.Random;
+import java.util.function.BiFunction;
+
+/**
+ * One entry of the request mix: a name for the report, a relative weight and a factory that builds
+ * a fresh request against the base URI using the client's random source.
+ */
+record LoadOperation(String name, int weight, BiFunction<URI, Random, HttpRequest> request) {
+
+    LoadOperation withWeight(int weight) {
+        return new LoadOperation(name, weight, request);
+    }
+}
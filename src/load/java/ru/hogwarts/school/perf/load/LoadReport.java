@@ -0,0 +1,28 @@
+package ru.hogwarts.school.perf.load;
+
+import java.util.List;
+
+/**
+ * Machine-readable result of a load run. Latencies are in milliseconds.
+ */
+record LoadReport(int students,
+                  int clients,
+                  boolean asyncEndpoints,
+                  double durationSeconds,
+                  long requests,
+                  long errors,
+                  double throughput,
+                  Latency latency,
+                  List<OperationResult> operations) {
+
+    record Latency(double mean, double p50, double p95, double p99, double p999, double max) {
+    }
+
+    record OperationResult(String name,
+                           int weight,
+                           long requests,
+                           long errors,
+                           double throughput,
+                           Latency latency) {
+    }
+}
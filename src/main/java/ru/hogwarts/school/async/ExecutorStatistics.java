@@ -0,0 +1,11 @@
+package ru.hogwarts.school.async;
+
+public record ExecutorStatistics(Subsystem subsystem,
+                                 int poolSize,
+                                 int activeWorkers,
+                                 int queueDepth,
+                                 int queueCapacity,
+                                 long completed,
+                                 long rejected,
+                                 double saturation) {
+}
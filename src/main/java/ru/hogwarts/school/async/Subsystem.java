@@ -0,0 +1,16 @@
+package ru.hogwarts.school.async;
+
+import java.util.Locale;
+
+/**
+ * Groups of endpoints that get their own executor, so a backlog in one cannot hold up the others.
+ */
+public enum Subsystem {
+    STUDENT,
+    FACULTY,
+    AVATAR;
+
+    String propertyKey() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
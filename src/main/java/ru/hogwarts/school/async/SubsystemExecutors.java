@@ -0,0 +1,118 @@
+package ru.hogwarts.school.async;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import ru.hogwarts.school.routing.RoutingContext;
+
+import javax.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * One bounded executor per {@link Subsystem} for the asynchronous controller endpoints.
+ * When {@code school.async.enabled} is off, work runs on the request thread and comes back as
+ * an already completed future, so controllers keep a single signature for both modes.
+ * A request pinned to the primary database stays pinned on the executor thread.
+ * A full queue fails fast with {@link RejectedExecutionException}, which the web layer turns into a 503.
+ */
+@Component
+public class SubsystemExecutors implements MeterBinder {
+    private final boolean enabled;
+    private final Map<Subsystem, Pool> pools = new EnumMap<>(Subsystem.class);
+
+    public SubsystemExecutors(@Value("${school.async.enabled:false}") boolean enabled, Environment environment) {
+        this.enabled = enabled;
+        if (enabled) {
+            for (Subsystem subsystem : Subsystem.values()) {
+                String prefix = "school.async." + subsystem.propertyKey();
+                pools.put(subsystem, new Pool(subsystem,
+                        environment.getProperty(prefix + ".threads", Integer.class, 4),
+                        environment.getProperty(prefix + ".queue-capacity", Integer.class, 100)));
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public <T> CompletableFuture<T> supply(Subsystem subsystem, Supplier<T> work) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(work.get());
+        }
+        return CompletableFuture.supplyAsync(RoutingContext.propagate(work), pools.get(subsystem).executor);
+    }
+
+    public List<ExecutorStatistics> getStatistics() {
+        return Arrays.stream(Subsystem.values())
+                .filter(pools::containsKey)
+                .map(subsystem -> pools.get(subsystem).statistics())
+                .toList();
+    }
+
+    /**
+     * Publishes the standard {@code executor.*} meters per pool plus a rejection counter,
+     * tagged with {@code subsystem}.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        pools.forEach((subsystem, pool) -> {
+            Tags tags = Tags.of("subsystem", subsystem.propertyKey());
+            new ExecutorServiceMetrics(pool.executor, "async." + subsystem.propertyKey(), tags).bindTo(registry);
+            registry.more().counter("school.async.rejected", tags, pool.rejected, LongAdder::sum);
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pools.values().forEach(pool -> pool.executor.shutdownNow());
+    }
+
+    private static final class Pool {
+        private final Subsystem subsystem;
+        private final int queueCapacity;
+        private final ThreadPoolExecutor executor;
+        private final LongAdder rejected = new LongAdder();
+
+        Pool(Subsystem subsystem, int threads, int queueCapacity) {
+            this.subsystem = subsystem;
+            this.queueCapacity = queueCapacity;
+            String namePrefix = subsystem.propertyKey() + "-async-";
+            AtomicInteger threadNumber = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, namePrefix + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    (runnable, pool) -> {
+                        rejected.increment();
+                        throw new RejectedExecutionException(subsystem + " executor is saturated");
+                    });
+        }
+
+        ExecutorStatistics statistics() {
+            int queueDepth = executor.getQueue().size();
+            int active = executor.getActiveCount();
+            int capacity = executor.getMaximumPoolSize() + queueCapacity;
+            return new ExecutorStatistics(subsystem, executor.getPoolSize(), active, queueDepth, queueCapacity,
+                    executor.getCompletedTaskCount(), rejected.sum(), (active + queueDepth) / (double) capacity);
+        }
+    }
+}
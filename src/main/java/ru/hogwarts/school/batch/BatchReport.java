@@ -0,0 +1,13 @@
+package ru.hogwarts.school.batch;
+
+import java.util.List;
+
+public record BatchReport(String job,
+                          WorkerPool pool,
+                          MergeOrder order,
+                          long students,
+                          int chunks,
+                          double elapsedMillis,
+                          double studentsPerSecond,
+                          List<WorkerTiming> workers) {
+}
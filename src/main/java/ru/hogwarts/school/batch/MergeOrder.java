@@ -0,0 +1,9 @@
+package ru.hogwarts.school.batch;
+
+/**
+ * How chunk results reach the sink: in the order the students were read, or as soon as each chunk completes.
+ */
+public enum MergeOrder {
+    ORDERED,
+    UNORDERED
+}
@@ -0,0 +1,281 @@
+package ru.hogwarts.school.batch;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.hogwarts.school.dto.StudentDto;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Runs a {@link StudentTask} over a stream of students split into fixed-size chunks.
+ * The stream is read on the calling thread while chunks run on a fork-join or a fixed pool; at most
+ * two chunks per worker are in flight, so memory does not grow with the number of students.
+ * Results are handed to the sink on the calling thread, either in read order or in completion order,
+ * which leaves the sink single-threaded without any locking.
+ */
+@Component
+public class StudentBatchEngine implements MeterBinder {
+    private final int threads;
+    private final int chunkSize;
+    private final int maxChunksInFlight;
+    private final ForkJoinPool forkJoinPool;
+    private final ThreadPoolExecutor fixedPool;
+    private final AtomicReference<BatchReport> lastReport = new AtomicReference<>();
+
+    public StudentBatchEngine(@Value("${school.batch.threads:0}") int threads,
+                              @Value("${school.batch.chunk-size:256}") int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.chunkSize = chunkSize;
+        this.maxChunksInFlight = this.threads * 2;
+        AtomicInteger forkJoinNumber = new AtomicInteger();
+        this.forkJoinPool = new ForkJoinPool(this.threads, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("student-batch-fj-" + forkJoinNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+        AtomicInteger fixedNumber = new AtomicInteger();
+        this.fixedPool = new ThreadPoolExecutor(this.threads, this.threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "student-batch-" + fixedNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Report of the most recently finished batch, if any has run since startup.
+     */
+    public Optional<BatchReport> getLastReport() {
+        return Optional.ofNullable(lastReport.get());
+    }
+
+    /**
+     * Applies the task to every student and passes non-null results to the sink. The stream is closed
+     * when the batch ends; a failing task cancels the chunks still pending and is rethrown as
+     * {@link IllegalStateException}.
+     */
+    public <R> BatchReport run(String job, Stream<StudentDto> students, StudentTask<R> task,
+                               WorkerPool pool, MergeOrder order, Consumer<? super R> sink) {
+        long start = System.nanoTime();
+        Map<String, WorkerStats> workers = new HashMap<>();
+        long processed = 0;
+        int chunks = 0;
+        try (students) {
+            Merger<R> merger = order == MergeOrder.ORDERED
+                    ? new OrderedMerger<>(executor(pool))
+                    : new UnorderedMerger<>(executor(pool));
+            try {
+                Iterator<StudentDto> iterator = students.iterator();
+                while (iterator.hasNext()) {
+                    List<StudentDto> chunk = new ArrayList<>(chunkSize);
+                    while (chunk.size() < chunkSize && iterator.hasNext()) {
+                        chunk.add(iterator.next());
+                    }
+                    merger.submit(() -> process(chunk, task));
+                    chunks++;
+                    while (merger.pending() >= maxChunksInFlight) {
+                        processed += drain(merger.next(), sink, workers);
+                    }
+                }
+                while (merger.pending() > 0) {
+                    processed += drain(merger.next(), sink, workers);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                merger.cancel();
+                throw new IllegalStateException("Batch " + job + " was interrupted", e);
+            } catch (ExecutionException e) {
+                merger.cancel();
+                throw new IllegalStateException("Batch " + job + " failed", e.getCause());
+            } catch (RuntimeException e) {
+                merger.cancel();
+                throw e;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        List<WorkerTiming> timings = workers.entrySet().stream()
+                .map(entry -> entry.getValue().toTiming(entry.getKey()))
+                .sorted(Comparator.comparing(WorkerTiming::worker))
+                .toList();
+        BatchReport report = new BatchReport(job, pool, order, processed, chunks, elapsed / 1_000_000.0,
+                elapsed > 0 ? processed * 1_000_000_000.0 / elapsed : 0.0, timings);
+        lastReport.set(report);
+        return report;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new ExecutorServiceMetrics(forkJoinPool, "student.batch.fork-join", List.of()).bindTo(registry);
+        new ExecutorServiceMetrics(fixedPool, "student.batch.fixed", List.of()).bindTo(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        forkJoinPool.shutdownNow();
+        fixedPool.shutdownNow();
+    }
+
+    private ExecutorService executor(WorkerPool pool) {
+        return pool == WorkerPool.FORK_JOIN ? forkJoinPool : fixedPool;
+    }
+
+    private static <R> ChunkResult<R> process(List<StudentDto> chunk, StudentTask<R> task) {
+        long start = System.nanoTime();
+        List<R> results = new ArrayList<>(chunk.size());
+        for (StudentDto student : chunk) {
+            R result = task.apply(student);
+            if (result != null) {
+                results.add(result);
+            }
+        }
+        return new ChunkResult<>(results, chunk.size(), Thread.currentThread().getName(),
+                System.nanoTime() - start);
+    }
+
+    private static <R> int drain(ChunkResult<R> chunk, Consumer<? super R> sink, Map<String, WorkerStats> workers) {
+        chunk.results().forEach(sink);
+        workers.computeIfAbsent(chunk.worker(), worker -> new WorkerStats()).add(chunk);
+        return chunk.students();
+    }
+
+    private record ChunkResult<R>(List<R> results, int students, String worker, long nanos) {
+    }
+
+    private static final class WorkerStats {
+        private int chunks;
+        private long students;
+        private long nanos;
+
+        void add(ChunkResult<?> chunk) {
+            chunks++;
+            students += chunk.students();
+            nanos += chunk.nanos();
+        }
+
+        WorkerTiming toTiming(String worker) {
+            return new WorkerTiming(worker, chunks, students, nanos / 1_000_000.0);
+        }
+    }
+
+    private interface Merger<R> {
+        void submit(Callable<ChunkResult<R>> chunk);
+
+        int pending();
+
+        ChunkResult<R> next() throws InterruptedException, ExecutionException;
+
+        void cancel();
+    }
+
+    /**
+     * Hands chunks back in submission order, waiting on the oldest one even if later ones are done.
+     */
+    private static final class OrderedMerger<R> implements Merger<R> {
+        private final ExecutorService executor;
+        private final Deque<Future<ChunkResult<R>>> futures = new ArrayDeque<>();
+
+        OrderedMerger(ExecutorService executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public void submit(Callable<ChunkResult<R>> chunk) {
+            futures.addLast(executor.submit(chunk));
+        }
+
+        @Override
+        public int pending() {
+            return futures.size();
+        }
+
+        @Override
+        public ChunkResult<R> next() throws InterruptedException, ExecutionException {
+            return futures.removeFirst().get();
+        }
+
+        @Override
+        public void cancel() {
+            futures.forEach(future -> future.cancel(true));
+            futures.clear();
+        }
+    }
+
+    /**
+     * Hands chunks back as they complete.
+     */
+    private static final class UnorderedMerger<R> implements Merger<R> {
+        private final CompletionService<ChunkResult<R>> completionService;
+        private final List<Future<ChunkResult<R>>> futures = new ArrayList<>();
+        private int pending;
+
+        UnorderedMerger(ExecutorService executor) {
+            this.completionService = new ExecutorCompletionService<>(executor);
+        }
+
+        @Override
+        public void submit(Callable<ChunkResult<R>> chunk) {
+            futures.add(completionService.submit(chunk));
+            pending++;
+        }
+
+        @Override
+        public int pending() {
+            return pending;
+        }
+
+        @Override
+        public ChunkResult<R> next() throws InterruptedException, ExecutionException {
+            Future<ChunkResult<R>> future = completionService.take();
+            pending--;
+            futures.remove(future);
+            return future.get();
+        }
+
+        @Override
+        public void cancel() {
+            futures.forEach(future -> future.cancel(true));
+            futures.clear();
+            pending = 0;
+        }
+    }
+}
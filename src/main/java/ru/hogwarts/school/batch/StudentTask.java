@@ -0,0 +1,12 @@
+package ru.hogwarts.school.batch;
+
+import ru.hogwarts.school.dto.StudentDto;
+
+/**
+ * Per-student unit of work run by {@link StudentBatchEngine}. Called concurrently from several workers,
+ * so implementations must not share mutable state; a {@code null} result is skipped.
+ */
+@FunctionalInterface
+public interface StudentTask<R> {
+    R apply(StudentDto student);
+}
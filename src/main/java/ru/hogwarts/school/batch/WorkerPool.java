@@ -0,0 +1,6 @@
+package ru.hogwarts.school.batch;
+
+public enum WorkerPool {
+    FORK_JOIN,
+    FIXED
+}
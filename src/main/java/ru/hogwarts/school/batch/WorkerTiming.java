@@ -0,0 +1,7 @@
+package ru.hogwarts.school.batch;
+
+public record WorkerTiming(String worker,
+                           int chunks,
+                           long students,
+                           double busyMillis) {
+}
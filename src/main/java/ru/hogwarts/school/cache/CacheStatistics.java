@@ -0,0 +1,4 @@
+package ru.hogwarts.school.cache;
+
+public record CacheStatistics(long size, long hits, long misses, long evictions, double hitRate) {
+}
@@ -0,0 +1,4 @@
+package ru.hogwarts.school.cache;
+
+public record RegionStatistics(String region, long hits, long misses, long puts, long elementsInMemory) {
+}
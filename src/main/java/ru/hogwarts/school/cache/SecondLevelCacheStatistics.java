@@ -0,0 +1,38 @@
+package ru.hogwarts.school.cache;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Per-region counters of the Hibernate second-level and query caches. They stay at zero unless
+ * {@code hibernate.generate_statistics} is on.
+ */
+@Component
+public class SecondLevelCacheStatistics {
+    private final Statistics statistics;
+
+    public SecondLevelCacheStatistics(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    public List<RegionStatistics> getRegionStatistics() {
+        return Arrays.stream(statistics.getSecondLevelCacheRegionNames())
+                .sorted()
+                .map(statistics::getCacheRegionStatistics)
+                .filter(Objects::nonNull)
+                .map(SecondLevelCacheStatistics::toRegionStatistics)
+                .toList();
+    }
+
+    private static RegionStatistics toRegionStatistics(CacheRegionStatistics region) {
+        return new RegionStatistics(region.getRegionName(), region.getHitCount(), region.getMissCount(),
+                region.getPutCount(), region.getElementCountInMemory());
+    }
+}
@@ -0,0 +1,144 @@
+package ru.hogwarts.school.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.hogwarts.school.event.FacultyChangedEvent;
+import ru.hogwarts.school.event.StudentChangedEvent;
+import ru.hogwarts.school.event.StudentRenamedEvent;
+import ru.hogwarts.school.event.StudentSnapshot;
+import ru.hogwarts.school.event.StudentsDeletedEvent;
+import ru.hogwarts.school.event.StudentsMovedEvent;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.routing.RoutingContext;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache of students by id.
+ * Entries are evicted by size and by time since the last write;
+ * {@link ru.hogwarts.school.service.StudentService} keeps it in step with writes, and
+ * {@link ru.hogwarts.school.service.FacultyService} with bulk changes to a faculty's students.
+ * Written students are only evicted, never put, and the loaders passed in by
+ * {@link ru.hogwarts.school.service.StudentService} fetch the faculty with the student, so an entry never
+ * holds a lazy proxy that a later request, on another session, would have to initialize.
+ * Loads read from the primary even in read-only transactions: a row from a lagging replica would put
+ * a student back that a write has just evicted, and serve it until the TTL.
+ */
+@Component
+public class StudentCache implements MeterBinder {
+    private final Cache<Long, Student> cache;
+
+    public StudentCache(@Value("${school.cache.student.max-size:10000}") long maxSize,
+                        @Value("${school.cache.student.ttl:PT10M}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    public Optional<Student> get(Long id, Function<Long, Optional<Student>> loader) {
+        return Optional.ofNullable(cache.get(id, key -> RoutingContext.onPrimary(() -> loader.apply(key).orElse(null))));
+    }
+
+    /**
+     * Cached students for the given ids; the misses are passed to {@code loader} in one call.
+     * Ids the loader does not return are left out of the result and are not cached.
+     */
+    public Map<Long, Student> getAll(Collection<Long> ids, Function<List<Long>, Map<Long, Student>> loader) {
+        return cache.getAll(ids, keys -> {
+            List<Long> misses = new ArrayList<>();
+            keys.forEach(misses::add);
+            return RoutingContext.onPrimary(() -> loader.apply(misses));
+        });
+    }
+
+    /**
+     * The cached student, if any, without loading it on a miss.
+     */
+    public Optional<Student> peek(Long id) {
+        return Optional.ofNullable(cache.getIfPresent(id));
+    }
+
+    public void put(Student student) {
+        if (student != null && student.getId() != null) {
+            cache.put(student.getId(), student);
+        }
+    }
+
+    public void evict(Long id) {
+        cache.invalidate(id);
+    }
+
+    /**
+     * Evicts every cached student of the faculty. Scans the cache, not the database,
+     * so it stays cheap however many students the faculty has.
+     */
+    public void evictFaculty(Long facultyId) {
+        cache.asMap().values().removeIf(student ->
+                student.getFaculty() != null && facultyId.equals(student.getFaculty().getId()));
+    }
+
+    /**
+     * Evicts the student again once the change is committed, so an entry loaded from the old row
+     * while the writing transaction was still open does not outlive it.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStudentChanged(StudentChangedEvent event) {
+        StudentSnapshot student = event.after() != null ? event.after() : event.before();
+        evict(student.id());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStudentRenamed(StudentRenamedEvent event) {
+        evict(event.id());
+    }
+
+    /**
+     * Evicts the faculty's students again once a bulk move commits, for the same reason as
+     * {@link #onStudentChanged}.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStudentsMoved(StudentsMovedEvent event) {
+        evictFaculty(event.fromFacultyId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStudentsDeleted(StudentsDeletedEvent event) {
+        evictFaculty(event.facultyId());
+    }
+
+    /**
+     * Cached students embed their faculty, so they are evicted when it is edited or deleted.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFacultyChanged(FacultyChangedEvent event) {
+        if (event.before() != null) {
+            evictFaculty(event.before().id());
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "student");
+    }
+
+    public CacheStatistics getStatistics() {
+        CacheStats stats = cache.stats();
+        return new CacheStatistics(cache.estimatedSize(), stats.hitCount(), stats.missCount(),
+                stats.evictionCount(), stats.hitRate());
+    }
+}
@@ -1,37 +1,132 @@
 package ru.hogwarts.school.controller;
 
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.hogwarts.school.async.Subsystem;
+import ru.hogwarts.school.async.SubsystemExecutors;
+import ru.hogwarts.school.dto.AvatarContent;
+import ru.hogwarts.school.dto.AvatarDto;
 import ru.hogwarts.school.model.Avatar;
 import ru.hogwarts.school.service.AvatarService;
+import ru.hogwarts.school.storage.PreviewStatistics;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/avatar")
 public class AvatarController {
+    private static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_FILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_FILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
     private final AvatarService avatarService;
+    private final SubsystemExecutors executors;
 
-    public AvatarController(AvatarService avatarService) {
+    public AvatarController(AvatarService avatarService, SubsystemExecutors executors) {
         this.avatarService = avatarService;
+        this.executors = executors;
     }
 
     @GetMapping("/{studentId}")
-    public ResponseEntity<Avatar> getAvatarByStudentId(@PathVariable Long studentId) {
-        Optional<Avatar> avatar = avatarService.findAvatarByStudentId(studentId);
+    public ResponseEntity<AvatarDto> getAvatarByStudentId(@PathVariable Long studentId, WebRequest request) {
+        if (ConditionalRequests.isNotModified(request, avatarService.findAvatarVersion(studentId))) {
+            return null;
+        }
+        Optional<AvatarDto> avatar = avatarService.findAvatarByStudentId(studentId);
         return avatar.map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    /**
+     * Streams the image file. On Tomcat the copy is handed to the connector's sendfile support;
+     * otherwise it goes through {@link java.nio.channels.FileChannel#transferTo}.
+     * Avatars stored before the file store existed are served from the database.
+     */
+    @GetMapping("/{studentId}/image")
+    public void getAvatarImage(@PathVariable Long studentId,
+                               HttpServletRequest request,
+                               HttpServletResponse response) throws IOException {
+        Optional<AvatarDto> avatar = avatarService.findAvatarByStudentId(studentId);
+        Optional<Path> file = avatar.flatMap(avatarService::findAvatarFile);
+        if (file.isPresent()) {
+            sendFile(request, response, file.get(), avatar.get().mediaType(), avatar.get().fileSize());
+            return;
+        }
+        Optional<AvatarContent> content = avatar.isPresent() ? avatarService.loadAvatarContent(studentId) : Optional.empty();
+        if (content.isEmpty()) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        writeHeaders(response, content.get().mediaType(), content.get().data().length);
+        response.getOutputStream().write(content.get().data());
+    }
+
+    @GetMapping("/{studentId}/preview")
+    public void getAvatarPreview(@PathVariable Long studentId,
+                                 @RequestParam(defaultValue = "64") int size,
+                                 HttpServletRequest request,
+                                 HttpServletResponse response) throws IOException {
+        if (!avatarService.getPreviewSizes().contains(size)) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(),
+                    "Preview size must be one of " + avatarService.getPreviewSizes());
+            return;
+        }
+        Optional<Path> preview = avatarService.findAvatarByStudentId(studentId)
+                .flatMap(avatar -> avatarService.findAvatarPreview(avatar, size));
+        if (preview.isEmpty()) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        sendFile(request, response, preview.get(), avatarService.getPreviewMediaType(), Files.size(preview.get()));
+    }
+
+    @GetMapping("/previews/stats")
+    public PreviewStatistics getPreviewStatistics() {
+        return avatarService.getPreviewStatistics();
+    }
+
     @GetMapping
-    public Page<Avatar> getAllAvatars(
+    public CompletableFuture<Page<AvatarDto>> getAllAvatars(
             @RequestParam(defaultValue = "0") Integer page,
             @RequestParam(defaultValue = "10") Integer size) {
-        return avatarService.getAllAvatars(page, size);
+        return executors.supply(Subsystem.AVATAR, () -> avatarService.getAllAvatars(page, size));
     }
 
     @PostMapping
-    public Avatar createAvatar(@RequestBody Avatar avatar) {
-        return avatarService.saveAvatar(avatar);
+    public CompletableFuture<AvatarDto> createAvatar(@RequestBody Avatar avatar) {
+        return executors.supply(Subsystem.AVATAR, () -> avatarService.saveAvatar(avatar));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    private void sendFile(HttpServletRequest request, HttpServletResponse response,
+                          Path file, String mediaType, long length) throws IOException {
+        writeHeaders(response, mediaType, length);
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTR, file.toString());
+            request.setAttribute(SENDFILE_FILE_START_ATTR, 0L);
+            request.setAttribute(SENDFILE_FILE_END_ATTR, length);
+        } else {
+            avatarService.transferAvatarFile(file, length, response.getOutputStream());
+        }
+    }
+
+    private static void writeHeaders(HttpServletResponse response, String mediaType, long length) {
+        response.setContentType(mediaType != null ? mediaType : MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setContentLengthLong(length);
     }
-}
\ No newline at end of file
+}
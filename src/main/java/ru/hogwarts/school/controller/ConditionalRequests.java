@@ -0,0 +1,68 @@
+package ru.hogwarts.school.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+import ru.hogwarts.school.dto.PatchResult;
+import ru.hogwarts.school.dto.VersionStamp;
+
+import java.util.Optional;
+
+/**
+ * Strong ETag / Last-Modified validation against a version stamp, done before the resource is loaded,
+ * and {@code If-Match} handling for version-checked partial updates.
+ */
+final class ConditionalRequests {
+    private ConditionalRequests() {
+    }
+
+    /**
+     * Checks the request's validators against the stamp and, when they match, turns the response
+     * into 304 Not Modified; the handler should then return {@code null}. Otherwise the validators
+     * are added to the response and the handler renders the body as usual.
+     */
+    static boolean isNotModified(WebRequest request, Optional<VersionStamp> stamp) {
+        if (stamp.isEmpty() || stamp.get().version() == null) {
+            return false;
+        }
+        long lastModified = stamp.get().lastModified() != null ? stamp.get().lastModified().toEpochMilli() : -1;
+        return request.checkNotModified(stamp.get().tag(), lastModified);
+    }
+
+    /**
+     * The version a client expects to change, from a strong {@code If-Match: "<version>"} header.
+     * A tag that also names an embedded version, as sent with a student, is matched on its own version only.
+     * Empty when the header is missing; a malformed or weak tag is rejected.
+     */
+    static Optional<Long> expectedVersion(String ifMatch) {
+        if (ifMatch == null) {
+            return Optional.empty();
+        }
+        String tag = ifMatch.strip();
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            throw new IllegalArgumentException("If-Match must be a single strong entity tag, e.g. \"3\"");
+        }
+        String version = tag.substring(1, tag.length() - 1);
+        int embedded = version.indexOf('-');
+        try {
+            return Optional.of(Long.parseLong(embedded > 0 ? version.substring(0, embedded) : version));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("If-Match does not name a version: " + tag);
+        }
+    }
+
+    /**
+     * 204 with the new version as ETag, 404 for a missing resource, 409 when the version no longer matches.
+     */
+    static ResponseEntity<Void> patchResponse(PatchResult result) {
+        return switch (result.outcome()) {
+            case UPDATED -> ResponseEntity.noContent().eTag("\"" + result.version() + "\"").build();
+            case NOT_FOUND -> ResponseEntity.notFound().build();
+            case CONFLICT -> ResponseEntity.status(HttpStatus.CONFLICT).build();
+        };
+    }
+
+    static ResponseEntity<Void> preconditionRequired() {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_REQUIRED).build();
+    }
+}
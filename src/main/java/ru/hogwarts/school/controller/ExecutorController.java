@@ -0,0 +1,24 @@
+package ru.hogwarts.school.controller;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.hogwarts.school.async.ExecutorStatistics;
+import ru.hogwarts.school.async.SubsystemExecutors;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/executors")
+public class ExecutorController {
+    private final SubsystemExecutors subsystemExecutors;
+
+    public ExecutorController(SubsystemExecutors subsystemExecutors) {
+        this.subsystemExecutors = subsystemExecutors;
+    }
+
+    @GetMapping("/stats")
+    public List<ExecutorStatistics> getExecutorStatistics() {
+        return subsystemExecutors.getStatistics();
+    }
+}
@@ -1,20 +1,41 @@
 package ru.hogwarts.school.controller;
 
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.hogwarts.school.async.Subsystem;
+import ru.hogwarts.school.async.SubsystemExecutors;
+import ru.hogwarts.school.cache.RegionStatistics;
+import ru.hogwarts.school.dto.BatchResult;
+import ru.hogwarts.school.dto.FacultyDto;
+import ru.hogwarts.school.dto.FacultyPatch;
+import ru.hogwarts.school.dto.FacultyStats;
+import ru.hogwarts.school.dto.StudentDto;
 import ru.hogwarts.school.model.Faculty;
-import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.service.ExportService;
+import ru.hogwarts.school.service.FacultyDeleteMode;
 import ru.hogwarts.school.service.FacultyService;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/faculty")
 public class FacultyController {
     private final FacultyService facultyService;
+    private final ExportService exportService;
+    private final SubsystemExecutors executors;
 
-    public FacultyController(FacultyService facultyService) {
+    public FacultyController(FacultyService facultyService, ExportService exportService,
+                             SubsystemExecutors executors) {
         this.facultyService = facultyService;
+        this.exportService = exportService;
+        this.executors = executors;
     }
 
 
@@ -23,8 +44,23 @@ public class FacultyController {
         return facultyService.createFaculty(faculty);
     }
 
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportFaculties() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(exportService::exportFaculties);
+    }
+
+    @GetMapping("/batch")
+    public CompletableFuture<BatchResult<Faculty>> getFacultiesByIds(@RequestParam List<Long> ids) {
+        return executors.supply(Subsystem.FACULTY, () -> facultyService.findFaculties(ids));
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<Faculty> getFaculty(@PathVariable Long id) {
+    public ResponseEntity<Faculty> getFaculty(@PathVariable Long id, WebRequest request) {
+        if (ConditionalRequests.isNotModified(request, facultyService.findFacultyVersion(id))) {
+            return null;
+        }
         Optional<Faculty> faculty = facultyService.findFaculty(id);
         return faculty.map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.notFound().build());
@@ -37,30 +73,82 @@ public class FacultyController {
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    /**
+     * Partial update guarded by {@code If-Match: "<version>"}; see {@link ConditionalRequests#patchResponse}.
+     */
+    @PatchMapping("/{id}")
+    public ResponseEntity<Void> patchFaculty(@PathVariable Long id,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                             @RequestBody FacultyPatch patch) {
+        return ConditionalRequests.expectedVersion(ifMatch)
+                .map(version -> ConditionalRequests.patchResponse(facultyService.patchFaculty(id, version, patch)))
+                .orElseGet(ConditionalRequests::preconditionRequired);
+    }
+
+    /**
+     * Deletes the faculty; {@code students} chooses whether its students are deleted, kept without a faculty
+     * or moved to faculty {@code moveTo}.
+     */
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteFaculty(@PathVariable Long id) {
-        boolean deleted = facultyService.deleteFaculty(id);
+    public ResponseEntity<Void> deleteFaculty(@PathVariable Long id,
+                                              @RequestParam(defaultValue = "CASCADE") FacultyDeleteMode students,
+                                              @RequestParam(required = false) Long moveTo) {
+        boolean deleted = facultyService.deleteFaculty(id, students, moveTo);
         return deleted ? ResponseEntity.ok().build() : ResponseEntity.notFound().build();
     }
 
+    @PostMapping("/{from}/move-students/{to}")
+    public ResponseEntity<Integer> moveStudents(@PathVariable Long from, @PathVariable Long to) {
+        return facultyService.moveStudents(from, to)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
     @GetMapping("/filter/{color}")
-    public List<Faculty> getFacultiesByColor(@PathVariable String color) {
-        return facultyService.getFacultiesByColor(color);
+    public CompletableFuture<List<Faculty>> getFacultiesByColor(@PathVariable String color) {
+        return executors.supply(Subsystem.FACULTY, () -> facultyService.getFacultiesByColor(color));
     }
 
     @GetMapping("/search")
-    public List<Faculty> getFacultiesByNameOrColor(@RequestParam String search) {
-        return facultyService.getFacultiesByNameOrColor(search);
+    public CompletableFuture<List<Faculty>> getFacultiesByNameOrColor(@RequestParam String search) {
+        return executors.supply(Subsystem.FACULTY, () -> facultyService.getFacultiesByNameOrColor(search));
+    }
+
+    @GetMapping("/autocomplete")
+    public CompletableFuture<List<FacultyDto>> autocompleteFaculties(@RequestParam String prefix,
+                                                                     @RequestParam(defaultValue = "10") int limit) {
+        return executors.supply(Subsystem.FACULTY, () -> facultyService.autocompleteFaculties(prefix, limit));
     }
 
     @GetMapping("/{id}/students")
-    public ResponseEntity<List<Student>> getFacultyStudents(@PathVariable Long id) {
-        Optional<Faculty> faculty = facultyService.findFaculty(id);
-        return faculty.map(f -> ResponseEntity.ok(f.getStudents()))
-                .orElseGet(() -> ResponseEntity.notFound().build());
+    public CompletableFuture<ResponseEntity<List<StudentDto>>> getFacultyStudents(@PathVariable Long id) {
+        return executors.supply(Subsystem.FACULTY, () -> facultyService.getFacultyStudents(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build()));
+    }
+
+    @GetMapping("/cache/stats")
+    public List<RegionStatistics> getCacheStatistics() {
+        return facultyService.getCacheStatistics();
+    }
+
+    @GetMapping("/stats")
+    public CompletableFuture<List<FacultyStats>> getFacultyStats() {
+        return executors.supply(Subsystem.FACULTY, facultyService::getFacultyStats);
     }
+
     @GetMapping("/longest-name")
-    public String getLongestFacultyName() {
-        return facultyService.getLongestFacultyName();
+    public CompletableFuture<String> getLongestFacultyName() {
+        return executors.supply(Subsystem.FACULTY, facultyService::getLongestFacultyName);
+    }
+
+    @ExceptionHandler(DuplicateKeyException.class)
+    public ResponseEntity<String> handleDuplicate(DuplicateKeyException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
     }
-}
\ No newline at end of file
+}
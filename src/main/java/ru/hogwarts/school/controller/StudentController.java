@@ -1,21 +1,57 @@
 package ru.hogwarts.school.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import ru.hogwarts.school.model.Faculty;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.hogwarts.school.async.Subsystem;
+import ru.hogwarts.school.async.SubsystemExecutors;
+import ru.hogwarts.school.batch.BatchReport;
+import ru.hogwarts.school.batch.MergeOrder;
+import ru.hogwarts.school.batch.WorkerPool;
+import ru.hogwarts.school.cache.CacheStatistics;
+import ru.hogwarts.school.dto.BatchResult;
+import ru.hogwarts.school.dto.BulkImportResult;
+import ru.hogwarts.school.dto.FacultyDto;
+import ru.hogwarts.school.dto.KeysetPage;
+import ru.hogwarts.school.dto.StudentDto;
+import ru.hogwarts.school.dto.StudentPatch;
 import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.service.ExportService;
+import ru.hogwarts.school.service.StudentImportService;
 import ru.hogwarts.school.service.StudentService;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/student")
 public class StudentController {
     private final StudentService studentService;
-
-    public StudentController(StudentService studentService) {
+    private final ExportService exportService;
+    private final StudentImportService studentImportService;
+    private final SubsystemExecutors executors;
+
+    public StudentController(StudentService studentService,
+                             ExportService exportService,
+                             StudentImportService studentImportService,
+                             SubsystemExecutors executors) {
         this.studentService = studentService;
+        this.exportService = exportService;
+        this.studentImportService = studentImportService;
+        this.executors = executors;
     }
 
     @PostMapping
@@ -23,8 +59,48 @@ public class StudentController {
         return studentService.createStudent(student);
     }
 
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BulkImportResult importStudentsJson(InputStream body) throws IOException {
+        return studentImportService.importJson(body);
+    }
+
+    @PostMapping(value = "/bulk", consumes = "text/csv")
+    public BulkImportResult importStudentsCsv(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                              InputStream body) throws IOException {
+        Charset charset = contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8;
+        return studentImportService.importCsv(new InputStreamReader(body, charset));
+    }
+
+    @GetMapping
+    public KeysetPage<Student> getStudents(@RequestParam(defaultValue = "0") long after,
+                                           @RequestParam(defaultValue = "100") int limit) {
+        return studentService.getStudentsAfter(after, limit);
+    }
+
+    @GetMapping("/search")
+    public CompletableFuture<Page<StudentDto>> searchStudents(@RequestParam String q,
+                                                              @RequestParam(defaultValue = "0") int page,
+                                                              @RequestParam(defaultValue = "20") int size) {
+        return executors.supply(Subsystem.STUDENT, () -> studentService.searchStudents(q, page, size));
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportStudents() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(exportService::exportStudents);
+    }
+
+    @GetMapping("/batch")
+    public BatchResult<Student> getStudentsByIds(@RequestParam List<Long> ids) {
+        return studentService.findStudents(ids);
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<Student> getStudent(@PathVariable Long id) {
+    public ResponseEntity<Student> getStudent(@PathVariable Long id, WebRequest request) {
+        if (ConditionalRequests.isNotModified(request, studentService.findStudentVersion(id))) {
+            return null;
+        }
         Optional<Student> student = studentService.findStudent(id);
         return student.map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.notFound().build());
@@ -37,6 +113,18 @@ public class StudentController {
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    /**
+     * Partial update guarded by {@code If-Match: "<version>"}; see {@link ConditionalRequests#patchResponse}.
+     */
+    @PatchMapping("/{id}")
+    public ResponseEntity<Void> patchStudent(@PathVariable Long id,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                             @RequestBody StudentPatch patch) {
+        return ConditionalRequests.expectedVersion(ifMatch)
+                .map(version -> ConditionalRequests.patchResponse(studentService.patchStudent(id, version, patch)))
+                .orElseGet(ConditionalRequests::preconditionRequired);
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteStudent(@PathVariable Long id) {
         boolean deleted = studentService.deleteStudent(id);
@@ -54,20 +142,20 @@ public class StudentController {
     }
 
     @GetMapping("/{id}/faculty")
-    public ResponseEntity<Faculty> getStudentFaculty(@PathVariable Long id) {
-        Optional<Student> student = studentService.findStudent(id);
-        return student.map(s -> ResponseEntity.ok(s.getFaculty()))
-                .orElseGet(() -> ResponseEntity.notFound().build());
+    public CompletableFuture<ResponseEntity<FacultyDto>> getStudentFaculty(@PathVariable Long id) {
+        return executors.supply(Subsystem.STUDENT, () -> studentService.findStudentFaculty(id)
+                .map(row -> ResponseEntity.ok(row.toFacultyDto()))
+                .orElseGet(() -> ResponseEntity.notFound().build()));
     }
 
     @GetMapping("/count")
-    public Integer getTotalCount() {
-        return studentService.getTotalCount();
+    public CompletableFuture<Integer> getTotalCount() {
+        return executors.supply(Subsystem.STUDENT, studentService::getTotalCount);
     }
 
     @GetMapping("/average-age")
-    public Double getAverageAge() {
-        return studentService.getAverageAge();
+    public CompletableFuture<Double> getAverageAge() {
+        return executors.supply(Subsystem.STUDENT, studentService::getAverageAge);
     }
 
     @GetMapping("/last-five")
@@ -75,13 +163,41 @@ public class StudentController {
         return studentService.getLastFiveStudents();
     }
 
+    @GetMapping("/cache/stats")
+    public CacheStatistics getCacheStatistics() {
+        return studentService.getCacheStatistics();
+    }
+
+    @GetMapping("/print")
+    public CompletableFuture<BatchReport> printStudents(@RequestParam(defaultValue = "FORK_JOIN") WorkerPool pool,
+                                                        @RequestParam(defaultValue = "UNORDERED") MergeOrder order) {
+        return executors.supply(Subsystem.STUDENT, () -> studentService.printStudents(pool, order));
+    }
+
     @GetMapping("/print-parallel")
-    public void printStudentsParallel() {
-        studentService.printStudentsParallel();
+    public CompletableFuture<BatchReport> printStudentsParallel() {
+        return printStudents(WorkerPool.FORK_JOIN, MergeOrder.UNORDERED);
     }
 
     @GetMapping("/print-synchronized")
-    public void printStudentsSynchronized() {
-        studentService.printStudentsSynchronized();
+    public CompletableFuture<BatchReport> printStudentsSynchronized() {
+        return printStudents(WorkerPool.FIXED, MergeOrder.ORDERED);
+    }
+
+    @GetMapping("/batch/stats")
+    public ResponseEntity<BatchReport> getLastBatchReport() {
+        return studentService.getLastBatchReport()
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @ExceptionHandler(DuplicateKeyException.class)
+    public ResponseEntity<String> handleDuplicate(DuplicateKeyException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+    }
+
+    @ExceptionHandler({IllegalArgumentException.class, JsonProcessingException.class})
+    public ResponseEntity<String> handleMalformedImport(Exception e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
     }
 }
\ No newline at end of file
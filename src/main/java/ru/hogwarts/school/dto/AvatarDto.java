@@ -0,0 +1,7 @@
+package ru.hogwarts.school.dto;
+
+import java.time.Instant;
+
+public record AvatarDto(Long id, String filePath, long fileSize, String mediaType, Long studentId,
+                        Long version, Instant lastModified) {
+}
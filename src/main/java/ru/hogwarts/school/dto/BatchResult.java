@@ -0,0 +1,26 @@
+package ru.hogwarts.school.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a multi-get: the entities found, in the order their ids were requested,
+ * and the requested ids that do not exist.
+ */
+public record BatchResult<T>(List<T> items, List<Long> missingIds) {
+
+    public static <T> BatchResult<T> of(List<Long> ids, Map<Long, T> found) {
+        List<T> items = new ArrayList<>(found.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : ids) {
+            T item = found.get(id);
+            if (item != null) {
+                items.add(item);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        return new BatchResult<>(items, missingIds);
+    }
+}
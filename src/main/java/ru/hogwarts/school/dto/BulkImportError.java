@@ -0,0 +1,6 @@
+package ru.hogwarts.school.dto;
+
+import java.util.List;
+
+public record BulkImportError(int row, String name, List<String> messages) {
+}
@@ -0,0 +1,11 @@
+package ru.hogwarts.school.dto;
+
+/**
+ * Body of a partial faculty update; {@code null} fields are left unchanged.
+ */
+public record FacultyPatch(String name, String color) {
+
+    public boolean isEmpty() {
+        return name == null && color == null;
+    }
+}
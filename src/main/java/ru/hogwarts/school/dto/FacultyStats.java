@@ -0,0 +1,7 @@
+package ru.hogwarts.school.dto;
+
+/**
+ * Age statistics of the students of one faculty.
+ */
+public record FacultyStats(Long facultyId, Long studentCount, Double averageAge, Integer minAge, Integer maxAge) {
+}
@@ -0,0 +1,10 @@
+package ru.hogwarts.school.dto;
+
+import java.util.List;
+
+/**
+ * One page of a keyset (cursor) listing. {@code nextCursor} is the value to pass as {@code after}
+ * to get the next page, or {@code null} when this is the last page.
+ */
+public record KeysetPage<T>(List<T> items, Long nextCursor) {
+}
@@ -0,0 +1,25 @@
+package ru.hogwarts.school.dto;
+
+/**
+ * Outcome of a version-checked partial update. {@code version} is the new version when the update was applied.
+ */
+public record PatchResult(Outcome outcome, Long version) {
+
+    public enum Outcome {
+        UPDATED,
+        NOT_FOUND,
+        CONFLICT
+    }
+
+    public static PatchResult updated(long version) {
+        return new PatchResult(Outcome.UPDATED, version);
+    }
+
+    public static PatchResult notFound() {
+        return new PatchResult(Outcome.NOT_FOUND, null);
+    }
+
+    public static PatchResult conflict() {
+        return new PatchResult(Outcome.CONFLICT, null);
+    }
+}
@@ -0,0 +1,7 @@
+package ru.hogwarts.school.dto;
+
+/**
+ * One row of a bulk student import. A missing {@code age} falls back to the entity default.
+ */
+public record StudentImportRow(String name, Integer age, Long facultyId) {
+}
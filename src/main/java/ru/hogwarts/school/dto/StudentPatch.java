@@ -0,0 +1,45 @@
+package ru.hogwarts.school.dto;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Body of a partial student update; {@code null} fields are left unchanged.
+ * {@code facultyId} distinguishes an absent property ({@code null}, unchanged)
+ * from an explicit JSON {@code null} ({@link Optional#empty()}, the student leaves its faculty).
+ */
+public record StudentPatch(String name,
+                           Integer age,
+                           @JsonDeserialize(using = PresenceDeserializer.class) Optional<Long> facultyId) {
+
+    public boolean isEmpty() {
+        return name == null && age == null && facultyId == null;
+    }
+
+    /**
+     * Jackson's own {@code Optional} support reads a missing property as {@link Optional#empty()},
+     * which would make "not sent" and "sent as null" indistinguishable.
+     */
+    static final class PresenceDeserializer extends JsonDeserializer<Optional<Long>> {
+
+        @Override
+        public Optional<Long> deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            return Optional.of(context.readValue(parser, Long.class));
+        }
+
+        @Override
+        public Optional<Long> getNullValue(DeserializationContext context) {
+            return Optional.empty();
+        }
+
+        @Override
+        public Object getAbsentValue(DeserializationContext context) {
+            return null;
+        }
+    }
+}
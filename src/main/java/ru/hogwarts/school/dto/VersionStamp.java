@@ -0,0 +1,29 @@
+package ru.hogwarts.school.dto;
+
+import java.time.Instant;
+
+/**
+ * Validators of a representation for conditional requests. {@code embeddedVersion} is the version of an
+ * entity embedded in the representation, such as a student's faculty, so that editing it changes the tag.
+ */
+public record VersionStamp(Long version, Instant lastModified, Long embeddedVersion) {
+
+    public VersionStamp(Long version, Instant lastModified) {
+        this(version, lastModified, null);
+    }
+
+    /**
+     * Stamp of a representation embedding another entity, last modified when either of them was.
+     */
+    public VersionStamp(Long version, Instant lastModified, Long embeddedVersion, Instant embeddedLastModified) {
+        this(version, embeddedLastModified != null && (lastModified == null || embeddedLastModified.isAfter(lastModified))
+                ? embeddedLastModified : lastModified, embeddedVersion);
+    }
+
+    /**
+     * The strong entity tag: {@code "<version>"}, or {@code "<version>-<embeddedVersion>"}.
+     */
+    public String tag() {
+        return "\"" + version + (embeddedVersion != null ? "-" + embeddedVersion : "") + "\"";
+    }
+}
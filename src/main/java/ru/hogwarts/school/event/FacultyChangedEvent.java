@@ -0,0 +1,23 @@
+package ru.hogwarts.school.event;
+
+import ru.hogwarts.school.model.Faculty;
+
+/**
+ * Published by {@link ru.hogwarts.school.service.FacultyService} after a faculty is created,
+ * edited or deleted. {@code before} is {@code null} for a created faculty,
+ * {@code after} is {@code null} for a deleted one.
+ */
+public record FacultyChangedEvent(FacultySnapshot before, FacultySnapshot after) {
+
+    public static FacultyChangedEvent created(Faculty faculty) {
+        return new FacultyChangedEvent(null, FacultySnapshot.of(faculty));
+    }
+
+    public static FacultyChangedEvent updated(FacultySnapshot before, Faculty faculty) {
+        return new FacultyChangedEvent(before, FacultySnapshot.of(faculty));
+    }
+
+    public static FacultyChangedEvent deleted(Faculty faculty) {
+        return new FacultyChangedEvent(FacultySnapshot.of(faculty), null);
+    }
+}
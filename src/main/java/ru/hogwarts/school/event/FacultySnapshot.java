@@ -0,0 +1,13 @@
+package ru.hogwarts.school.event;
+
+import ru.hogwarts.school.model.Faculty;
+
+/**
+ * Immutable copy of the faculty fields that derived in-memory structures depend on.
+ */
+public record FacultySnapshot(Long id, String name, String color) {
+
+    public static FacultySnapshot of(Faculty faculty) {
+        return new FacultySnapshot(faculty.getId(), faculty.getName(), faculty.getColor());
+    }
+}
@@ -0,0 +1,23 @@
+package ru.hogwarts.school.event;
+
+import ru.hogwarts.school.model.Student;
+
+/**
+ * Published by {@link ru.hogwarts.school.service.StudentService} after a student is created,
+ * edited or deleted. {@code before} is {@code null} for a created student,
+ * {@code after} is {@code null} for a deleted one.
+ */
+public record StudentChangedEvent(StudentSnapshot before, StudentSnapshot after) {
+
+    public static StudentChangedEvent created(Student student) {
+        return new StudentChangedEvent(null, StudentSnapshot.of(student));
+    }
+
+    public static StudentChangedEvent updated(StudentSnapshot before, Student student) {
+        return new StudentChangedEvent(before, StudentSnapshot.of(student));
+    }
+
+    public static StudentChangedEvent deleted(Student student) {
+        return new StudentChangedEvent(StudentSnapshot.of(student), null);
+    }
+}
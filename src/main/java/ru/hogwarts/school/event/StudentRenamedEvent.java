@@ -0,0 +1,9 @@
+package ru.hogwarts.school.event;
+
+/**
+ * Published by {@link ru.hogwarts.school.service.StudentService} after a partial update that changed
+ * only the student's name. Unlike {@link StudentChangedEvent} it carries no state from before the change,
+ * which the update never reads.
+ */
+public record StudentRenamedEvent(Long id, String name) {
+}
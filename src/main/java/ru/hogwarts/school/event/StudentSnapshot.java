@@ -0,0 +1,14 @@
+package ru.hogwarts.school.event;
+
+import ru.hogwarts.school.model.Student;
+
+/**
+ * Immutable copy of the student fields that derived in-memory structures depend on.
+ */
+public record StudentSnapshot(Long id, String name, int age, Long facultyId) {
+
+    public static StudentSnapshot of(Student student) {
+        Long facultyId = student.getFaculty() != null ? student.getFaculty().getId() : null;
+        return new StudentSnapshot(student.getId(), student.getName(), student.getAge(), facultyId);
+    }
+}
@@ -0,0 +1,18 @@
+package ru.hogwarts.school.event;
+
+import java.util.List;
+
+/**
+ * Published by {@link ru.hogwarts.school.service.FacultyService} after the students of a faculty were
+ * deleted with a single bulk delete. One event replaces a {@link StudentChangedEvent} per student,
+ * so listeners can apply the whole batch at once.
+ */
+public record StudentsDeletedEvent(Long facultyId, List<StudentSnapshot> students) {
+
+    /**
+     * Ids of the deleted students, sorted ascending.
+     */
+    public long[] sortedIds() {
+        return students.stream().mapToLong(StudentSnapshot::id).sorted().toArray();
+    }
+}
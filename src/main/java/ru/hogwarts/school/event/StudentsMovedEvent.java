@@ -0,0 +1,9 @@
+package ru.hogwarts.school.event;
+
+/**
+ * Published by {@link ru.hogwarts.school.service.FacultyService} after every student of one faculty
+ * was moved with a single bulk update. {@code toFacultyId} is {@code null} when the students were
+ * left without a faculty.
+ */
+public record StudentsMovedEvent(Long fromFacultyId, Long toFacultyId, int count) {
+}
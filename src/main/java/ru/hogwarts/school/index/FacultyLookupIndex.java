@@ -0,0 +1,146 @@
+package ru.hogwarts.school.index;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.hogwarts.school.dto.FacultyDto;
+import ru.hogwarts.school.event.FacultyChangedEvent;
+import ru.hogwarts.school.event.FacultySnapshot;
+import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.routing.RoutingContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * Case-insensitive in-memory lookup of faculties by name and color, with name prefix completion.
+ * Faculties are few and rarely written, so every change publishes a fresh immutable snapshot
+ * (copy-on-write) and readers never lock.
+ * <p>
+ * Built once the application is ready and kept current from {@link FacultyChangedEvent}s;
+ * callers fall back to the database until then.
+ */
+@Component
+public class FacultyLookupIndex {
+    private static final Logger logger = LoggerFactory.getLogger(FacultyLookupIndex.class);
+
+    private final FacultyRepository facultyRepository;
+    private volatile Snapshot snapshot;
+
+    public FacultyLookupIndex(FacultyRepository facultyRepository) {
+        this.facultyRepository = facultyRepository;
+    }
+
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public synchronized void build() {
+        Map<Long, FacultySnapshot> faculties = new HashMap<>();
+        RoutingContext.runOnPrimary(() -> {
+            try (Stream<FacultyDto> rows = facultyRepository.streamAllAsDto()) {
+                rows.forEach(row -> faculties.put(row.id(), new FacultySnapshot(row.id(), row.name(), row.color())));
+            }
+        });
+        snapshot = Snapshot.of(faculties);
+        logger.info("Faculty lookup index built with {} faculties", faculties.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onFacultyChanged(FacultyChangedEvent event) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+        Map<Long, FacultySnapshot> faculties = new HashMap<>(current.faculties());
+        if (event.before() != null) {
+            faculties.remove(event.before().id());
+        }
+        if (event.after() != null) {
+            faculties.put(event.after().id(), event.after());
+        }
+        snapshot = Snapshot.of(faculties);
+    }
+
+    /**
+     * Ids of faculties whose color equals {@code color} ignoring case, sorted ascending.
+     */
+    public List<Long> idsByColor(String color) {
+        return snapshot.byColor().getOrDefault(fold(color), List.of());
+    }
+
+    /**
+     * Ids of faculties whose name or color equals {@code term} ignoring case, sorted ascending.
+     */
+    public List<Long> idsByNameOrColor(String term) {
+        Snapshot current = snapshot;
+        String key = fold(term);
+        TreeSet<Long> ids = new TreeSet<>(current.byName().getOrDefault(key, List.of()));
+        ids.addAll(current.byColor().getOrDefault(key, List.of()));
+        return List.copyOf(ids);
+    }
+
+    /**
+     * Up to {@code limit} faculties whose name starts with {@code prefix} ignoring case, ordered by name.
+     */
+    public List<FacultySnapshot> completeName(String prefix, int limit) {
+        String key = fold(prefix);
+        List<FacultySnapshot> result = new ArrayList<>(limit);
+        for (List<FacultySnapshot> sameName : snapshot.names().tailMap(key, true).values()) {
+            for (FacultySnapshot faculty : sameName) {
+                if (result.size() == limit || !fold(faculty.name()).startsWith(key)) {
+                    return result;
+                }
+                result.add(faculty);
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return snapshot.faculties().size();
+    }
+
+    static String fold(String value) {
+        return value == null ? "" : value.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+    }
+
+    private record Snapshot(Map<Long, FacultySnapshot> faculties,
+                            Map<String, List<Long>> byName,
+                            Map<String, List<Long>> byColor,
+                            NavigableMap<String, List<FacultySnapshot>> names) {
+
+        static Snapshot of(Map<Long, FacultySnapshot> faculties) {
+            List<FacultySnapshot> sorted = new ArrayList<>(faculties.values());
+            sorted.sort(Comparator.comparing(FacultySnapshot::id));
+            Map<String, List<Long>> byName = new HashMap<>();
+            Map<String, List<Long>> byColor = new HashMap<>();
+            NavigableMap<String, List<FacultySnapshot>> names = new TreeMap<>();
+            for (FacultySnapshot faculty : sorted) {
+                byName.computeIfAbsent(fold(faculty.name()), key -> new ArrayList<>()).add(faculty.id());
+                byColor.computeIfAbsent(fold(faculty.color()), key -> new ArrayList<>()).add(faculty.id());
+                names.computeIfAbsent(fold(faculty.name()), key -> new ArrayList<>()).add(faculty);
+            }
+            byName.replaceAll((key, ids) -> List.copyOf(ids));
+            byColor.replaceAll((key, ids) -> List.copyOf(ids));
+            names.replaceAll((key, sameName) -> List.copyOf(sameName));
+            return new Snapshot(Map.copyOf(faculties), Map.copyOf(byName), Map.copyOf(byColor),
+                    Collections.unmodifiableNavigableMap(names));
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package ru.hogwarts.school.index;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.hogwarts.school.event.StudentChangedEvent;
+import ru.hogwarts.school.event.StudentSnapshot;
+import ru.hogwarts.school.event.StudentsDeletedEvent;
+import ru.hogwarts.school.repository.StudentIdAge;
+import ru.hogwarts.school.repository.StudentRepository;
+import ru.hogwarts.school.routing.RoutingContext;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory index from age to student ids. Ages live in a tiny domain, so every age gets its own
+ * bucket: a sorted {@code long[]} of ids that grows like an array list. Nothing is boxed.
+ * <p>
+ * The index is built once the application is ready and kept current from {@link StudentChangedEvent}s
+ * and {@link StudentsDeletedEvent}s.
+ * Ages outside {@code [0, MAX_AGE]} disable it, and callers fall back to the database.
+ */
+@Component
+public class StudentAgeIndex {
+    static final int MAX_AGE = 255;
+    private static final int INITIAL_BUCKET_CAPACITY = 16;
+    private static final long[] EMPTY = new long[0];
+    private static final Logger logger = LoggerFactory.getLogger(StudentAgeIndex.class);
+
+    private final StudentRepository studentRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final long[][] buckets = new long[MAX_AGE + 1][];
+    private final int[] sizes = new int[MAX_AGE + 1];
+    private volatile boolean ready;
+    private volatile boolean disabled;
+
+    public StudentAgeIndex(StudentRepository studentRepository) {
+        this.studentRepository = studentRepository;
+    }
+
+    public boolean isReady() {
+        return ready && !disabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void build() {
+        RoutingContext.runOnPrimary(() -> {
+            try (Stream<StudentIdAge> rows = studentRepository.streamAllIdsAndAges()) {
+                rows.forEach(row -> add(row.getAge(), row.getId()));
+            }
+        });
+        ready = true;
+        logger.info("Student age index built with {} ids", size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStudentChanged(StudentChangedEvent event) {
+        StudentSnapshot before = event.before();
+        StudentSnapshot after = event.after();
+        if (before != null && after != null && before.age() == after.age()) {
+            return;
+        }
+        if (before != null) {
+            remove(before.age(), before.id());
+        }
+        if (after != null) {
+            add(after.age(), after.id());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStudentsDeleted(StudentsDeletedEvent event) {
+        removeAll(event.sortedIds());
+    }
+
+    /**
+     * Returns the ids of students aged {@code minAge..maxAge} inclusive, sorted ascending.
+     */
+    public long[] idsBetween(int minAge, int maxAge) {
+        int from = Math.max(minAge, 0);
+        int to = Math.min(maxAge, MAX_AGE);
+        if (from > to) {
+            return EMPTY;
+        }
+        lock.readLock().lock();
+        try {
+            int total = 0;
+            for (int age = from; age <= to; age++) {
+                total += sizes[age];
+            }
+            long[] ids = new long[total];
+            int offset = 0;
+            for (int age = from; age <= to; age++) {
+                if (sizes[age] > 0) {
+                    System.arraycopy(buckets[age], 0, ids, offset, sizes[age]);
+                    offset += sizes[age];
+                }
+            }
+            if (from != to) {
+                Arrays.sort(ids);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return Arrays.stream(sizes).sum();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void add(int age, long id) {
+        if (!inDomain(age)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            long[] bucket = buckets[age];
+            int size = sizes[age];
+            if (bucket == null) {
+                bucket = buckets[age] = new long[INITIAL_BUCKET_CAPACITY];
+            }
+            int position = Arrays.binarySearch(bucket, 0, size, id);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+            if (size == bucket.length) {
+                bucket = buckets[age] = Arrays.copyOf(bucket, size + (size >> 1));
+            }
+            System.arraycopy(bucket, position, bucket, position + 1, size - position);
+            bucket[position] = id;
+            sizes[age] = size + 1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(int age, long id) {
+        if (!inDomain(age)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            long[] bucket = buckets[age];
+            int size = sizes[age];
+            int position = bucket == null ? -1 : Arrays.binarySearch(bucket, 0, size, id);
+            if (position < 0) {
+                return;
+            }
+            System.arraycopy(bucket, position + 1, bucket, position, size - position - 1);
+            sizes[age] = size - 1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes many ids with one compacting pass per bucket instead of one shift per id.
+     */
+    void removeAll(long[] sortedIds) {
+        if (sortedIds.length == 0) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (int age = 0; age <= MAX_AGE; age++) {
+                long[] bucket = buckets[age];
+                int kept = 0;
+                for (int i = 0; i < sizes[age]; i++) {
+                    if (Arrays.binarySearch(sortedIds, bucket[i]) < 0) {
+                        bucket[kept++] = bucket[i];
+                    }
+                }
+                sizes[age] = kept;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean inDomain(int age) {
+        if (age >= 0 && age <= MAX_AGE) {
+            return true;
+        }
+        if (!disabled) {
+            disabled = true;
+            logger.warn("Age {} is outside the indexed domain, age queries fall back to the database", age);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,374 @@
+package ru.hogwarts.school.index;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.hogwarts.school.event.StudentChangedEvent;
+import ru.hogwarts.school.event.StudentRenamedEvent;
+import ru.hogwarts.school.event.StudentSnapshot;
+import ru.hogwarts.school.event.StudentsDeletedEvent;
+import ru.hogwarts.school.repository.StudentIdName;
+import ru.hogwarts.school.repository.StudentRepository;
+import ru.hogwarts.school.routing.RoutingContext;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * N-gram inverted index over case-folded student names for substring search.
+ * Every run of one, two and three code points in a folded name maps to a sorted {@code long[]} of
+ * student ids. A query of up to three code points reads the postings of the query itself; a longer one
+ * intersects the postings of its trigrams, smallest first. The surviving candidates are verified against
+ * the folded name, so results are exact, and no query scans every name.
+ * <p>
+ * Matches are ranked: exact name, then prefix, then word start, then anywhere; shorter names first
+ * within a rank, then by id. Only the requested page is kept in a bounded heap while counting.
+ * <p>
+ * Built once the application is ready and kept current from {@link StudentChangedEvent}s,
+ * {@link StudentRenamedEvent}s and {@link StudentsDeletedEvent}s.
+ */
+@Component
+public class StudentNameIndex {
+    private static final int INITIAL_POSTINGS_CAPACITY = 4;
+    private static final int MAX_GRAM_LENGTH = 3;
+    private static final Logger logger = LoggerFactory.getLogger(StudentNameIndex.class);
+
+    private final StudentRepository studentRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, String> foldedNames = new HashMap<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private volatile boolean ready;
+
+    public StudentNameIndex(StudentRepository studentRepository) {
+        this.studentRepository = studentRepository;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void build() {
+        RoutingContext.runOnPrimary(() -> {
+            try (Stream<StudentIdName> rows = studentRepository.streamAllIdsAndNames()) {
+                rows.forEach(row -> put(row.getId(), row.getName()));
+            }
+        });
+        ready = true;
+        logger.info("Student name index built with {} names and {} grams", size(), gramCount());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStudentChanged(StudentChangedEvent event) {
+        StudentSnapshot before = event.before();
+        StudentSnapshot after = event.after();
+        if (before != null && after != null && before.name().equals(after.name())) {
+            return;
+        }
+        if (before != null) {
+            remove(before.id());
+        }
+        if (after != null) {
+            put(after.id(), after.name());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStudentRenamed(StudentRenamedEvent event) {
+        put(event.id(), event.name());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStudentsDeleted(StudentsDeletedEvent event) {
+        removeAll(event.sortedIds());
+    }
+
+    /**
+     * Ranks every student whose folded name contains the folded query and returns the ids
+     * at {@code offset..offset+limit} of that ranking, along with the total number of matches.
+     */
+    public SearchResult search(String query, int offset, int limit) {
+        String needle = fold(query);
+        if (needle.isEmpty()) {
+            return new SearchResult(new long[0], 0);
+        }
+        int keep = offset + limit;
+        Comparator<Match> ranking = Comparator.comparingInt(Match::rank)
+                .thenComparingInt(Match::length)
+                .thenComparingLong(Match::id);
+        PriorityQueue<Match> best = new PriorityQueue<>(Math.max(1, Math.min(keep, 1024)), ranking.reversed());
+        int total = 0;
+        lock.readLock().lock();
+        try {
+            for (long id : candidates(needle)) {
+                total += offer(best, keep, ranking, id, foldedNames.get(id), needle);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Match[] ranked = best.toArray(new Match[0]);
+        Arrays.sort(ranked, ranking);
+        int from = Math.min(offset, ranked.length);
+        long[] ids = new long[ranked.length - from];
+        for (int i = from; i < ranked.length; i++) {
+            ids[i - from] = ranked[i].id();
+        }
+        return new SearchResult(ids, total);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return foldedNames.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int gramCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void put(long id, String name) {
+        String folded = fold(name);
+        lock.writeLock().lock();
+        try {
+            String previous = foldedNames.put(id, folded);
+            if (previous != null) {
+                for (long gram : grams(previous)) {
+                    removePosting(gram, id);
+                }
+            }
+            for (long gram : grams(folded)) {
+                postings.computeIfAbsent(gram, key -> new Postings()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            String previous = foldedNames.remove(id);
+            if (previous != null) {
+                for (long gram : grams(previous)) {
+                    removePosting(gram, id);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes many ids with one compacting pass per affected postings list instead of one shift per id.
+     */
+    void removeAll(long[] sortedIds) {
+        lock.writeLock().lock();
+        try {
+            Set<Long> affected = new HashSet<>();
+            for (long id : sortedIds) {
+                String previous = foldedNames.remove(id);
+                if (previous != null) {
+                    for (long gram : grams(previous)) {
+                        affected.add(gram);
+                    }
+                }
+            }
+            for (Long gram : affected) {
+                Postings list = postings.get(gram);
+                if (list != null && list.removeAll(sortedIds) == 0) {
+                    postings.remove(gram);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sorted ids whose names contain every gram of the non-empty needle. Caller holds the read lock.
+     */
+    private long[] candidates(String needle) {
+        long[] grams = queryGrams(needle);
+        Postings[] lists = new Postings[grams.length];
+        for (int i = 0; i < grams.length; i++) {
+            lists[i] = postings.get(grams[i]);
+            if (lists[i] == null) {
+                return new long[0];
+            }
+        }
+        Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+        long[] result = Arrays.copyOf(lists[0].ids, lists[0].size);
+        int size = result.length;
+        for (int i = 1; i < lists.length && size > 0; i++) {
+            int kept = 0;
+            for (int j = 0; j < size; j++) {
+                if (Arrays.binarySearch(lists[i].ids, 0, lists[i].size, result[j]) >= 0) {
+                    result[kept++] = result[j];
+                }
+            }
+            size = kept;
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private void removePosting(long gram, long id) {
+        Postings list = postings.get(gram);
+        if (list != null && list.remove(id) && list.size == 0) {
+            postings.remove(gram);
+        }
+    }
+
+    private static int offer(PriorityQueue<Match> best, int keep, Comparator<Match> ranking,
+                             long id, String name, String needle) {
+        int position = name == null ? -1 : name.indexOf(needle);
+        if (position < 0) {
+            return 0;
+        }
+        if (keep > 0) {
+            Match match = new Match(id, rank(name, needle, position), name.length());
+            if (best.size() < keep) {
+                best.add(match);
+            } else if (ranking.compare(match, best.peek()) < 0) {
+                best.poll();
+                best.add(match);
+            }
+        }
+        return 1;
+    }
+
+    private static int rank(String name, String needle, int first) {
+        if (first == 0) {
+            return name.length() == needle.length() ? 0 : 1;
+        }
+        for (int position = first; position > 0; position = name.indexOf(needle, position + 1)) {
+            if (!Character.isLetterOrDigit(name.codePointBefore(position))) {
+                return 2;
+            }
+        }
+        return 3;
+    }
+
+    /**
+     * Distinct grams of one, two and three code points of a folded string.
+     */
+    static long[] grams(String folded) {
+        int[] codePoints = folded.codePoints().toArray();
+        LongStream.Builder grams = LongStream.builder();
+        for (int i = 0; i < codePoints.length; i++) {
+            for (int length = 1; length <= MAX_GRAM_LENGTH && i + length <= codePoints.length; length++) {
+                grams.add(gram(codePoints, i, length));
+            }
+        }
+        return grams.build().sorted().distinct().toArray();
+    }
+
+    /**
+     * The grams a name must contain to match the needle: the needle itself when it is short enough to be
+     * a gram, otherwise its distinct trigrams.
+     */
+    static long[] queryGrams(String needle) {
+        int[] codePoints = needle.codePoints().toArray();
+        if (codePoints.length <= MAX_GRAM_LENGTH) {
+            return new long[]{gram(codePoints, 0, codePoints.length)};
+        }
+        long[] grams = new long[codePoints.length - MAX_GRAM_LENGTH + 1];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = gram(codePoints, i, MAX_GRAM_LENGTH);
+        }
+        return Arrays.stream(grams).sorted().distinct().toArray();
+    }
+
+    /**
+     * Packs up to three code points into a long, 21 bits each. Code points are offset by one, so the
+     * leading fields of shorter grams stay zero and never collide with a longer gram.
+     */
+    private static long gram(int[] codePoints, int from, int length) {
+        long gram = 0;
+        for (int i = from; i < from + length; i++) {
+            gram = (gram << 21) | (codePoints[i] + 1);
+        }
+        return gram;
+    }
+
+    /**
+     * Unicode case folding; upper-then-lower also merges forms that only differ in upper case.
+     */
+    static String fold(String value) {
+        return value == null ? "" : value.strip().toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+    }
+
+    public record SearchResult(long[] ids, int total) {
+    }
+
+    private record Match(long id, int rank, int length) {
+    }
+
+    /**
+     * Sorted, growable list of ids; ids arrive mostly in ascending order, so adds are usually appends.
+     */
+    private static final class Postings {
+        private long[] ids = new long[INITIAL_POSTINGS_CAPACITY];
+        private int size;
+
+        void add(long id) {
+            int position = size > 0 && ids[size - 1] < id ? -size - 1 : Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            size++;
+        }
+
+        /**
+         * Drops every id found in {@code sortedIds} and returns the remaining size.
+         */
+        int removeAll(long[] sortedIds) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (Arrays.binarySearch(sortedIds, ids[i]) < 0) {
+                    ids[kept++] = ids[i];
+                }
+            }
+            size = kept;
+            return size;
+        }
+
+        boolean remove(long id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+            return true;
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package ru.hogwarts.school.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import javax.persistence.*;
+import java.time.Instant;
 
 @Entity
 public class Avatar {
@@ -11,13 +14,24 @@ public class Avatar {
     private long fileSize;
     private String mediaType;
 
-    @Lob
+    /**
+     * Upload payload only: the bytes are written to the {@link ru.hogwarts.school.storage.AvatarFileStore}
+     * and never stored or loaded with the avatar.
+     */
+    @Transient
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private byte[] data;
 
-    @OneToOne
+    @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "student_id")
     private Student student;
 
+    @Version
+    private Long version;
+
+    @Column(name = "last_modified")
+    private Instant lastModified;
+
     public Avatar() {
     }
 
@@ -77,4 +91,26 @@ public class Avatar {
     public void setStudent(Student student) {
         this.student = student;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(Instant lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        lastModified = Instant.now();
+    }
 }
\ No newline at end of file
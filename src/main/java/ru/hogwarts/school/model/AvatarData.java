@@ -0,0 +1,54 @@
+package ru.hogwarts.school.model;
+
+import javax.persistence.*;
+
+/**
+ * Image bytes of an {@link Avatar}, kept in their own table so that avatar metadata
+ * can be read without touching the blob.
+ */
+@Entity
+@Table(name = "avatar_data")
+public class AvatarData {
+    @Id
+    private Long id;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "avatar_id")
+    private Avatar avatar;
+
+    @Lob
+    private byte[] data;
+
+    public AvatarData() {
+    }
+
+    public AvatarData(Avatar avatar, byte[] data) {
+        this.avatar = avatar;
+        this.data = data;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Avatar getAvatar() {
+        return avatar;
+    }
+
+    public void setAvatar(Avatar avatar) {
+        this.avatar = avatar;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public void setData(byte[] data) {
+        this.data = data;
+    }
+}
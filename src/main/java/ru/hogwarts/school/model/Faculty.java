@@ -1,8 +1,14 @@
 package ru.hogwarts.school.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
+import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
 
@@ -12,9 +18,13 @@ import java.util.Objects;
         uniqueConstraints = @UniqueConstraint(columnNames = {"name", "color"}),
         indexes = @Index(name = "idx_faculty_name_color", columnList = "name,color")
 )
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "faculty")
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Faculty {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "faculty_seq")
+    @SequenceGenerator(name = "faculty_seq", sequenceName = "faculty_seq", allocationSize = 50)
     private Long id;
 
     @NotNull(message = "Name cannot be null")
@@ -27,9 +37,16 @@ public class Faculty {
     @Column(nullable = false)
     private String color;
 
+    @JsonIgnore
     @OneToMany(mappedBy = "faculty", fetch = FetchType.LAZY, cascade = CascadeType.ALL)
     private List<Student> students;
 
+    @Version
+    private Long version;
+
+    @Column(name = "last_modified")
+    private Instant lastModified;
+
 
     public Faculty() {
     }
@@ -80,6 +97,28 @@ public class Faculty {
         this.students = students;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(Instant lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        lastModified = Instant.now();
+    }
+
 
     @Override
     public boolean equals(Object o) {
@@ -4,16 +4,21 @@ import javax.persistence.*;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
+import java.time.Instant;
 
 @Entity
 @Table(
         name = "student",
         uniqueConstraints = @UniqueConstraint(columnNames = "name"),
-        indexes = @Index(name = "idx_student_name", columnList = "name")
+        indexes = {
+                @Index(name = "idx_student_name", columnList = "name"),
+                @Index(name = "idx_student_age", columnList = "age")
+        }
 )
 public class Student {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "student_seq")
+    @SequenceGenerator(name = "student_seq", sequenceName = "student_seq", allocationSize = 50)
     private Long id;
 
     @NotNull(message = "Name cannot be null")
@@ -29,6 +34,12 @@ public class Student {
     @JoinColumn(name = "faculty_id")
     private Faculty faculty;
 
+    @Version
+    private Long version;
+
+    @Column(name = "last_modified")
+    private Instant lastModified;
+
 
     public Student() {
     }
@@ -79,6 +90,28 @@ public class Student {
         this.faculty = faculty;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(Instant lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        lastModified = Instant.now();
+    }
+
 
     @Override
     public boolean equals(Object o) {
@@ -0,0 +1,18 @@
+package ru.hogwarts.school.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.hogwarts.school.model.AvatarData;
+import java.util.Optional;
+
+public interface AvatarDataRepository extends JpaRepository<AvatarData, Long> {
+    @Query("SELECT d FROM AvatarData d JOIN FETCH d.avatar a WHERE a.student.id = :studentId")
+    Optional<AvatarData> findByStudentId(@Param("studentId") Long studentId);
+
+    @Modifying
+    @Query("DELETE FROM AvatarData d WHERE d.id IN " +
+            "(SELECT a.id FROM Avatar a JOIN a.student s WHERE s.faculty.id = :facultyId)")
+    int deleteInBulkByStudentFacultyId(@Param("facultyId") Long facultyId);
+}
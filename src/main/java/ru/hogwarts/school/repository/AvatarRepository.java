@@ -3,10 +3,36 @@ package ru.hogwarts.school.repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.hogwarts.school.dto.AvatarDto;
+import ru.hogwarts.school.dto.VersionStamp;
 import ru.hogwarts.school.model.Avatar;
+import java.util.List;
 import java.util.Optional;
 
 public interface AvatarRepository extends JpaRepository<Avatar, Long> {
     Optional<Avatar> findByStudentId(Long studentId);
     Page<Avatar> findAll(Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM Avatar a WHERE a.student.id IN (SELECT s.id FROM Student s WHERE s.faculty.id = :facultyId)")
+    int deleteInBulkByStudentFacultyId(@Param("facultyId") Long facultyId);
+
+    @Query("SELECT new ru.hogwarts.school.dto.AvatarDto(a.id, a.filePath, a.fileSize, a.mediaType, a.student.id, " +
+            "a.version, a.lastModified) FROM Avatar a WHERE a.student.faculty.id = :facultyId")
+    List<AvatarDto> findDtosByStudentFacultyId(@Param("facultyId") Long facultyId);
+
+    @Query("SELECT new ru.hogwarts.school.dto.VersionStamp(a.version, a.lastModified) FROM Avatar a WHERE a.student.id = :studentId")
+    Optional<VersionStamp> findVersionByStudentId(@Param("studentId") Long studentId);
+
+    @Query("SELECT new ru.hogwarts.school.dto.AvatarDto(a.id, a.filePath, a.fileSize, a.mediaType, a.student.id, " +
+            "a.version, a.lastModified) FROM Avatar a WHERE a.student.id = :studentId")
+    Optional<AvatarDto> findDtoByStudentId(@Param("studentId") Long studentId);
+
+    @Query(value = "SELECT new ru.hogwarts.school.dto.AvatarDto(a.id, a.filePath, a.fileSize, a.mediaType, a.student.id, " +
+            "a.version, a.lastModified) FROM Avatar a ORDER BY a.id",
+            countQuery = "SELECT COUNT(a) FROM Avatar a")
+    Page<AvatarDto> findAllDtos(Pageable pageable);
 }
@@ -0,0 +1,9 @@
+package ru.hogwarts.school.repository;
+
+public interface FacultyAgeCount {
+    long getFacultyId();
+
+    int getAge();
+
+    long getStudentCount();
+}
@@ -0,0 +1,13 @@
+package ru.hogwarts.school.repository;
+
+import ru.hogwarts.school.dto.FacultyPatch;
+
+public interface FacultyPatchRepository {
+
+    /**
+     * Writes only the fields present in the patch, in one {@code UPDATE} guarded by the version.
+     *
+     * @return 1 when the faculty was updated, 0 when it does not exist or has another version
+     */
+    int patch(Long id, long expectedVersion, FacultyPatch patch);
+}
@@ -0,0 +1,31 @@
+package ru.hogwarts.school.repository;
+
+import ru.hogwarts.school.dto.FacultyPatch;
+import ru.hogwarts.school.model.Faculty;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Root;
+
+class FacultyPatchRepositoryImpl implements FacultyPatchRepository {
+    private final EntityManager entityManager;
+
+    FacultyPatchRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public int patch(Long id, long expectedVersion, FacultyPatch patch) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Faculty> update = builder.createCriteriaUpdate(Faculty.class);
+        Root<Faculty> root = update.from(Faculty.class);
+        if (patch.name() != null) {
+            update.set(root.<String>get("name"), patch.name());
+        }
+        if (patch.color() != null) {
+            update.set(root.<String>get("color"), patch.color());
+        }
+        return VersionedUpdates.execute(entityManager, update, root, id, expectedVersion);
+    }
+}
@@ -1,10 +1,53 @@
 package ru.hogwarts.school.repository;
 
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import ru.hogwarts.school.dto.FacultyDto;
+import ru.hogwarts.school.dto.VersionStamp;
+import ru.hogwarts.school.event.FacultySnapshot;
 import ru.hogwarts.school.model.Faculty;
+
+import javax.persistence.QueryHint;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
-public interface FacultyRepository extends JpaRepository<Faculty, Long> {
+public interface FacultyRepository extends JpaRepository<Faculty, Long>, FacultyPatchRepository {
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     List<Faculty> findByColor(String color);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     List<Faculty> findByNameIgnoreCaseOrColorIgnoreCase(String name, String color);
-}
\ No newline at end of file
+
+    @Query("SELECT new ru.hogwarts.school.dto.VersionStamp(f.version, f.lastModified) FROM Faculty f WHERE f.id = :id")
+    Optional<VersionStamp> findVersionById(@Param("id") Long id);
+
+    @Query("SELECT new ru.hogwarts.school.event.FacultySnapshot(f.id, f.name, f.color) " +
+            "FROM Faculty f WHERE f.id = :id AND f.version = :version")
+    Optional<FacultySnapshot> findSnapshotByIdAndVersion(@Param("id") Long id, @Param("version") long version);
+
+    List<Faculty> findByNameStartingWithIgnoreCaseOrderByNameAscIdAsc(String prefix, Pageable pageable);
+
+    @Query("SELECT f.id AS facultyId, s.id AS studentId, s.name AS name, s.age AS age " +
+            "FROM Faculty f LEFT JOIN f.students s WHERE f.id = :id ORDER BY s.id")
+    List<FacultyRosterRow> findRoster(@Param("id") Long id);
+
+    @Query("SELECT f.id AS id, f.name AS name FROM Faculty f WHERE LENGTH(f.name) > 0 " +
+            "ORDER BY LENGTH(f.name) DESC, f.id")
+    List<FacultyIdName> findByNameLengthDesc(Pageable pageable);
+
+    default Optional<FacultyIdName> findLongestFaculty() {
+        return findByNameLengthDesc(PageRequest.of(0, 1)).stream().findFirst();
+    }
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new ru.hogwarts.school.dto.FacultyDto(f.id, f.name, f.color) FROM Faculty f ORDER BY f.id")
+    Stream<FacultyDto> streamAllAsDto();
+}
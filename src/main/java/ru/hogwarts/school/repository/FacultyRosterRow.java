@@ -0,0 +1,11 @@
+package ru.hogwarts.school.repository;
+
+public interface FacultyRosterRow {
+    Long getFacultyId();
+
+    Long getStudentId();
+
+    String getName();
+
+    Integer getAge();
+}
@@ -0,0 +1,7 @@
+package ru.hogwarts.school.repository;
+
+public interface StudentAgeTotals {
+    long getStudentCount();
+
+    long getAgeSum();
+}
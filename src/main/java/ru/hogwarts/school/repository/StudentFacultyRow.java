@@ -0,0 +1,17 @@
+package ru.hogwarts.school.repository;
+
+import ru.hogwarts.school.dto.FacultyDto;
+
+public interface StudentFacultyRow {
+    Long getStudentId();
+
+    Long getFacultyId();
+
+    String getFacultyName();
+
+    String getFacultyColor();
+
+    default FacultyDto toFacultyDto() {
+        return getFacultyId() != null ? new FacultyDto(getFacultyId(), getFacultyName(), getFacultyColor()) : null;
+    }
+}
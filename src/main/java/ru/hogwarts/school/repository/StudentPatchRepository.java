@@ -0,0 +1,13 @@
+package ru.hogwarts.school.repository;
+
+import ru.hogwarts.school.dto.StudentPatch;
+
+public interface StudentPatchRepository {
+
+    /**
+     * Writes only the fields present in the patch, in one {@code UPDATE} guarded by the version.
+     *
+     * @return 1 when the student was updated, 0 when it does not exist or has another version
+     */
+    int patch(Long id, long expectedVersion, StudentPatch patch);
+}
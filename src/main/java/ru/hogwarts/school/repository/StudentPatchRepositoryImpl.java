@@ -0,0 +1,39 @@
+package ru.hogwarts.school.repository;
+
+import ru.hogwarts.school.dto.StudentPatch;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Root;
+
+class StudentPatchRepositoryImpl implements StudentPatchRepository {
+    private final EntityManager entityManager;
+
+    StudentPatchRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public int patch(Long id, long expectedVersion, StudentPatch patch) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Student> update = builder.createCriteriaUpdate(Student.class);
+        Root<Student> root = update.from(Student.class);
+        if (patch.name() != null) {
+            update.set(root.<String>get("name"), patch.name());
+        }
+        if (patch.age() != null) {
+            update.set(root.<Integer>get("age"), patch.age());
+        }
+        if (patch.facultyId() != null) {
+            Expression<Faculty> faculty = patch.facultyId().isPresent()
+                    ? builder.literal(entityManager.getReference(Faculty.class, patch.facultyId().get()))
+                    : builder.nullLiteral(Faculty.class);
+            update.set(root.<Faculty>get("faculty"), faculty);
+        }
+        return VersionedUpdates.execute(entityManager, update, root, id, expectedVersion);
+    }
+}
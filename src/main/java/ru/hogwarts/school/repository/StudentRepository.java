@@ -1,20 +1,119 @@
 package ru.hogwarts.school.repository;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import ru.hogwarts.school.dto.FacultyStats;
+import ru.hogwarts.school.dto.StudentDto;
+import ru.hogwarts.school.dto.VersionStamp;
+import ru.hogwarts.school.event.StudentSnapshot;
+import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
+
+import javax.persistence.QueryHint;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
-public interface StudentRepository extends JpaRepository<Student, Long> {
+public interface StudentRepository extends JpaRepository<Student, Long>, StudentPatchRepository {
     List<Student> findByAge(int age);
     List<Student> findByAgeBetween(int minAge, int maxAge);
 
+    @Query("SELECT new ru.hogwarts.school.dto.VersionStamp(s.version, s.lastModified, f.version, f.lastModified) " +
+            "FROM Student s LEFT JOIN s.faculty f WHERE s.id = :id")
+    Optional<VersionStamp> findVersionById(@Param("id") Long id);
+
+    @Query("SELECT new ru.hogwarts.school.event.StudentSnapshot(s.id, s.name, s.age, s.faculty.id) " +
+            "FROM Student s WHERE s.id = :id AND s.version = :version")
+    Optional<StudentSnapshot> findSnapshotByIdAndVersion(@Param("id") Long id, @Param("version") long version);
+
+    @Query("SELECT new ru.hogwarts.school.event.StudentSnapshot(s.id, s.name, s.age, s.faculty.id) " +
+            "FROM Student s WHERE s.faculty.id = :facultyId")
+    List<StudentSnapshot> findSnapshotsByFacultyId(@Param("facultyId") Long facultyId);
+
+    @Modifying
+    @Query("DELETE FROM Student s WHERE s.faculty.id = :facultyId")
+    int deleteInBulkByFacultyId(@Param("facultyId") Long facultyId);
+
+    /**
+     * Moves every student of a faculty to {@code target}, or out of any faculty for {@code null},
+     * in one statement. The bulk update bypasses {@code @Version} and {@code @PreUpdate},
+     * so both are maintained here.
+     */
+    @Modifying
+    @Query("UPDATE Student s SET s.faculty = :target, s.version = s.version + 1, s.lastModified = :now " +
+            "WHERE s.faculty.id = :facultyId")
+    int moveInBulkByFacultyId(@Param("facultyId") Long facultyId, @Param("target") Faculty target,
+                              @Param("now") Instant now);
+
     @Query("SELECT COUNT(s) FROM Student s")
     Integer countAllStudents();
 
     @Query("SELECT AVG(s.age) FROM Student s")
     Double findAverageAge();
 
-    @Query("SELECT s FROM Student s ORDER BY s.id DESC LIMIT 5")
-    List<Student> findLastFiveStudents();
-}
\ No newline at end of file
+    @Query("SELECT COUNT(s) AS studentCount, COALESCE(SUM(s.age), 0) AS ageSum FROM Student s")
+    StudentAgeTotals findAgeTotals();
+
+    @Query("SELECT s.faculty.id AS facultyId, s.age AS age, COUNT(s) AS studentCount FROM Student s " +
+            "WHERE s.faculty IS NOT NULL GROUP BY s.faculty.id, s.age")
+    List<FacultyAgeCount> countByFacultyAndAge();
+
+    @Query("SELECT new ru.hogwarts.school.dto.FacultyStats(s.faculty.id, COUNT(s), AVG(s.age), MIN(s.age), MAX(s.age)) " +
+            "FROM Student s WHERE s.faculty IS NOT NULL GROUP BY s.faculty.id ORDER BY s.faculty.id")
+    List<FacultyStats> findFacultyStats();
+
+    List<Student> findTop5ByOrderByIdDesc();
+
+    default List<Student> findLastFiveStudents() {
+        return findTop5ByOrderByIdDesc();
+    }
+
+    @Query("SELECT s.id AS studentId, f.id AS facultyId, f.name AS facultyName, f.color AS facultyColor " +
+            "FROM Student s LEFT JOIN s.faculty f WHERE s.id = :id")
+    Optional<StudentFacultyRow> findFacultyRow(@Param("id") Long id);
+
+    List<Student> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("SELECT s FROM Student s ORDER BY s.id")
+    Stream<Student> streamAllOrderedById();
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT s.id AS id, s.age AS age FROM Student s")
+    Stream<StudentIdAge> streamAllIdsAndAges();
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT s.id AS id, s.name AS name FROM Student s")
+    Stream<StudentIdName> streamAllIdsAndNames();
+
+    @Query("SELECT new ru.hogwarts.school.dto.StudentDto(s.id, s.name, s.age, s.faculty.id) " +
+            "FROM Student s WHERE s.id IN :ids")
+    List<StudentDto> findDtosByIdIn(@Param("ids") Collection<Long> ids);
+
+    @EntityGraph(attributePaths = "faculty")
+    Optional<Student> findWithFacultyById(Long id);
+
+    @EntityGraph(attributePaths = "faculty")
+    List<Student> findWithFacultyByIdIn(Collection<Long> ids);
+
+    Page<Student> findByNameContainingIgnoreCase(String name, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new ru.hogwarts.school.dto.StudentDto(s.id, s.name, s.age, s.faculty.id) " +
+            "FROM Student s ORDER BY s.id")
+    Stream<StudentDto> streamAllAsDto();
+}
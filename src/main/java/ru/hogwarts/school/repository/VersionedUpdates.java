@@ -0,0 +1,31 @@
+package ru.hogwarts.school.repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Root;
+import java.time.Instant;
+
+/**
+ * Finishes a bulk update of one row under optimistic locking. A bulk update bypasses {@code @Version}
+ * and {@code @PreUpdate}, so the version bump and the modification time are set here.
+ */
+final class VersionedUpdates {
+    private VersionedUpdates() {
+    }
+
+    /**
+     * Runs {@code UPDATE ... SET <changes>, version = version + 1, last_modified = now
+     * WHERE id = :id AND version = :expectedVersion}.
+     *
+     * @return 1 when the row was updated, 0 when it does not exist or has another version
+     */
+    static <T> int execute(EntityManager entityManager, CriteriaUpdate<T> update, Root<T> root,
+                           Long id, long expectedVersion) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        update.set(root.<Long>get("version"), builder.sum(root.<Long>get("version"), 1L));
+        update.set(root.<Instant>get("lastModified"), Instant.now());
+        update.where(builder.equal(root.get("id"), id), builder.equal(root.get("version"), expectedVersion));
+        return entityManager.createQuery(update).executeUpdate();
+    }
+}
@@ -0,0 +1,6 @@
+package ru.hogwarts.school.routing;
+
+public enum DataSourceRole {
+    PRIMARY,
+    REPLICA
+}
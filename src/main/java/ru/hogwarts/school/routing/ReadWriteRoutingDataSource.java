@@ -0,0 +1,108 @@
+package ru.hogwarts.school.routing;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends connections opened inside a read-only transaction to the replica and everything else to the primary.
+ * The decision is taken when the connection is opened, so this must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: transaction managers fetch the
+ * connection before the transaction is marked read-only.
+ * <p>
+ * When the replica refuses a connection the read falls back to the primary, and the replica is skipped
+ * for {@code retryInterval} before it is tried again.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements MeterBinder {
+    private static final Logger log = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final long retryIntervalNanos;
+    private final AtomicLong replicaRetryAt = new AtomicLong();
+    private volatile boolean replicaDown;
+    private final LongAdder primaryConnections = new LongAdder();
+    private final LongAdder replicaConnections = new LongAdder();
+    private final LongAdder failovers = new LongAdder();
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, Duration retryInterval) {
+        this.primary = primary;
+        this.replica = replica;
+        this.retryIntervalNanos = retryInterval.toNanos();
+        setTargetDataSources(Map.of(DataSourceRole.PRIMARY, primary, DataSourceRole.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    public boolean isReplicaAvailable() {
+        return !replicaDown || System.nanoTime() - replicaRetryAt.get() >= 0;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && !RoutingContext.isPinnedToPrimary()
+                && isReplicaAvailable()
+                ? DataSourceRole.REPLICA
+                : DataSourceRole.PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connect(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return connect(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        registry.more().counter("school.datasource.connections", Tags.of("role", "primary"), primaryConnections,
+                LongAdder::sum);
+        registry.more().counter("school.datasource.connections", Tags.of("role", "replica"), replicaConnections,
+                LongAdder::sum);
+        registry.more().counter("school.datasource.replica.failovers", Tags.empty(), failovers, LongAdder::sum);
+        Gauge.builder("school.datasource.replica.available", this, routing -> routing.isReplicaAvailable() ? 1 : 0)
+                .register(registry);
+    }
+
+    private Connection connect(ConnectionOpener opener) throws SQLException {
+        if (determineCurrentLookupKey() == DataSourceRole.REPLICA) {
+            try {
+                Connection connection = opener.open(replica);
+                replicaDown = false;
+                replicaConnections.increment();
+                return connection;
+            } catch (SQLException e) {
+                failovers.increment();
+                replicaRetryAt.set(System.nanoTime() + retryIntervalNanos);
+                replicaDown = true;
+                log.warn("Replica unavailable, reading from the primary for the next {} ms: {}",
+                        Duration.ofNanos(retryIntervalNanos).toMillis(), e.getMessage());
+            }
+        }
+        Connection connection = opener.open(primary);
+        primaryConnections.increment();
+        return connection;
+    }
+
+    @FunctionalInterface
+    private interface ConnectionOpener {
+        Connection open(DataSource dataSource) throws SQLException;
+    }
+}
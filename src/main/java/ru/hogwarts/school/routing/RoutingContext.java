@@ -0,0 +1,60 @@
+package ru.hogwarts.school.routing;
+
+import java.util.function.Supplier;
+
+/**
+ * Per-thread override that sends even read-only transactions to the primary, used for the
+ * read-your-writes window after a client's own write and for reads whose results are kept in memory.
+ */
+public final class RoutingContext {
+    private static final ThreadLocal<Boolean> PINNED_TO_PRIMARY = new ThreadLocal<>();
+
+    private RoutingContext() {
+    }
+
+    public static boolean isPinnedToPrimary() {
+        return Boolean.TRUE.equals(PINNED_TO_PRIMARY.get());
+    }
+
+    public static void pinToPrimary() {
+        PINNED_TO_PRIMARY.set(Boolean.TRUE);
+    }
+
+    public static void clear() {
+        PINNED_TO_PRIMARY.remove();
+    }
+
+    /**
+     * Runs the work pinned to the primary, for reads whose results outlive the request: the student cache,
+     * the in-memory indexes and the aggregates would otherwise keep whatever a lagging replica returned.
+     * The choice is made when a connection is opened, so the work must issue the transaction's first statement.
+     */
+    public static <T> T onPrimary(Supplier<T> work) {
+        if (isPinnedToPrimary()) {
+            return work.get();
+        }
+        pinToPrimary();
+        try {
+            return work.get();
+        } finally {
+            clear();
+        }
+    }
+
+    public static void runOnPrimary(Runnable work) {
+        onPrimary(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Wraps work handed to another thread so it runs with the caller's pin.
+     */
+    public static <T> Supplier<T> propagate(Supplier<T> work) {
+        if (!isPinnedToPrimary()) {
+            return work;
+        }
+        return () -> onPrimary(work);
+    }
+}
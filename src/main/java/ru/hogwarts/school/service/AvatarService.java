@@ -1,30 +1,215 @@
 package ru.hogwarts.school.service;
 
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.hogwarts.school.dto.AvatarContent;
+import ru.hogwarts.school.dto.AvatarDto;
+import ru.hogwarts.school.dto.VersionStamp;
 import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.AvatarDataRepository;
 import ru.hogwarts.school.repository.AvatarRepository;
+import ru.hogwarts.school.storage.AvatarFileStore;
+import ru.hogwarts.school.storage.AvatarPreviewGenerator;
+import ru.hogwarts.school.storage.PreviewStatistics;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 
 @Service
+@Timed(value = "school.service", extraTags = {"service", "avatar"}, histogram = true)
 public class AvatarService {
+    private static final Logger logger = LoggerFactory.getLogger(AvatarService.class);
+
     private final AvatarRepository avatarRepository;
+    private final AvatarDataRepository avatarDataRepository;
+    private final AvatarFileStore avatarFileStore;
+    private final AvatarPreviewGenerator avatarPreviewGenerator;
+    private final EntityManager entityManager;
 
-    public AvatarService(AvatarRepository avatarRepository) {
+    public AvatarService(AvatarRepository avatarRepository,
+                         AvatarDataRepository avatarDataRepository,
+                         AvatarFileStore avatarFileStore,
+                         AvatarPreviewGenerator avatarPreviewGenerator,
+                         EntityManager entityManager) {
         this.avatarRepository = avatarRepository;
+        this.avatarDataRepository = avatarDataRepository;
+        this.avatarFileStore = avatarFileStore;
+        this.avatarPreviewGenerator = avatarPreviewGenerator;
+        this.entityManager = entityManager;
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<VersionStamp> findAvatarVersion(Long studentId) {
+        return avatarRepository.findVersionByStudentId(studentId);
     }
 
-    public Optional<Avatar> findAvatarByStudentId(Long studentId) {
-        return avatarRepository.findByStudentId(studentId);
+    @Transactional(readOnly = true)
+    public Optional<AvatarDto> findAvatarByStudentId(Long studentId) {
+        return avatarRepository.findDtoByStudentId(studentId);
     }
 
-    public Page<Avatar> getAllAvatars(Integer page, Integer size) {
+    @Transactional(readOnly = true)
+    public Page<AvatarDto> getAllAvatars(Integer page, Integer size) {
         PageRequest pageRequest = PageRequest.of(page, size);
-        return avatarRepository.findAll(pageRequest);
+        return avatarRepository.findAllDtos(pageRequest);
+    }
+
+    public Optional<Path> findAvatarFile(AvatarDto avatar) {
+        return avatarFileStore.resolve(avatar.filePath());
+    }
+
+    public List<Integer> getPreviewSizes() {
+        return avatarPreviewGenerator.getSizes();
+    }
+
+    public String getPreviewMediaType() {
+        return avatarPreviewGenerator.getMediaType();
+    }
+
+    /**
+     * The downscaled preview, rendered on demand if the background job has not produced it
+     * (still queued, or dropped because the queue was full).
+     */
+    public Optional<Path> findAvatarPreview(AvatarDto avatar, int size) {
+        return avatarPreviewGenerator.findOrRender(avatar.id(), avatar.filePath(), size);
+    }
+
+    public PreviewStatistics getPreviewStatistics() {
+        return avatarPreviewGenerator.getStatistics();
+    }
+
+    public void transferAvatarFile(Path file, long length, OutputStream out) throws IOException {
+        avatarFileStore.transfer(file, length, out);
+    }
+
+    /**
+     * Image bytes kept in the database, for avatars stored before the file store existed.
+     */
+    @Transactional(readOnly = true)
+    public Optional<AvatarContent> loadAvatarContent(Long studentId) {
+        return avatarDataRepository.findByStudentId(studentId)
+                .map(data -> new AvatarContent(data.getAvatar().getMediaType(), data.getData()));
+    }
+
+    /**
+     * Saves the avatar and writes its bytes to the file store. The file is staged inside the transaction and
+     * published only once it commits, so a rollback neither leaves an orphan file nor replaces the file of
+     * the avatar's committed version.
+     */
+    @Transactional
+    public AvatarDto saveAvatar(Avatar avatar) {
+        byte[] data = avatar.getData();
+        if (data != null) {
+            avatar.setFileSize(data.length);
+        }
+        avatar.setStudent(resolveStudent(avatar.getStudent()));
+        Avatar saved = avatarRepository.save(avatar);
+        if (data != null) {
+            AvatarFileStore.StagedFile file = avatarFileStore.stage(saved.getId(), extensionOf(avatar), data);
+            saved.setFilePath(file.fileName());
+            avatarRepository.flush();
+            publishAfterCommit(file, saved.getId());
+        }
+        return new AvatarDto(saved.getId(), saved.getFilePath(), saved.getFileSize(), saved.getMediaType(),
+                saved.getStudent() != null ? saved.getStudent().getId() : null,
+                saved.getVersion(), saved.getLastModified());
+    }
+
+    /**
+     * Swaps a student the client referenced by id for the managed one, which Hibernate
+     * would otherwise take for an unsaved student since the reference carries no version.
+     */
+    private Student resolveStudent(Student student) {
+        if (student == null) {
+            return null;
+        }
+        if (student.getId() == null) {
+            throw new IllegalArgumentException("Student must be referenced by id");
+        }
+        Student managed = entityManager.find(Student.class, student.getId());
+        if (managed == null) {
+            throw new IllegalArgumentException("Student " + student.getId() + " does not exist");
+        }
+        return managed;
+    }
+
+    private void publishAfterCommit(AvatarFileStore.StagedFile file, Long avatarId) {
+        Runnable publish = () -> {
+            avatarFileStore.publish(file);
+            avatarPreviewGenerator.submit(avatarId, file.fileName());
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish.run();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                avatarFileStore.discard(file);
+            }
+        });
+    }
+
+    /**
+     * Deletes the files and previews of avatars whose rows the current transaction deletes, once it commits,
+     * so a rollback keeps the files of the avatars it restores. A file that cannot be deleted is logged and
+     * left behind rather than failing the rest.
+     */
+    public void deleteFilesAfterCommit(List<AvatarDto> avatars) {
+        if (avatars.isEmpty()) {
+            return;
+        }
+        Runnable delete = () -> avatars.forEach(this::deleteFiles);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            delete.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                delete.run();
+            }
+        });
+    }
+
+    private void deleteFiles(AvatarDto avatar) {
+        try {
+            avatarFileStore.delete(avatar.filePath());
+            avatarPreviewGenerator.deletePreviews(avatar.id());
+        } catch (UncheckedIOException e) {
+            logger.warn("Cannot delete files of avatar {}", avatar.id(), e);
+        }
     }
 
-    public Avatar saveAvatar(Avatar avatar) {
-        return avatarRepository.save(avatar);
+    private static String extensionOf(Avatar avatar) {
+        String source = avatar.getFilePath();
+        int dot = source != null ? source.lastIndexOf('.') : -1;
+        if (dot >= 0) {
+            source = source.substring(dot + 1);
+        } else if (avatar.getMediaType() != null && avatar.getMediaType().contains("/")) {
+            source = avatar.getMediaType().substring(avatar.getMediaType().indexOf('/') + 1);
+        } else {
+            return "";
+        }
+        return source.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,67 @@
+package ru.hogwarts.school.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes full exports as newline-delimited JSON straight from a forward-only cursor of DTO projections,
+ * flushing every {@code school.export.batch-size} rows. No entities are hydrated and nothing is collected,
+ * so heap use does not depend on table size.
+ */
+@Service
+public class ExportService {
+    private final StudentRepository studentRepository;
+    private final FacultyRepository facultyRepository;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter rowWriter;
+    private final int batchSize;
+
+    public ExportService(StudentRepository studentRepository,
+                         FacultyRepository facultyRepository,
+                         ObjectMapper objectMapper,
+                         @Value("${school.export.batch-size:500}") int batchSize) {
+        this.studentRepository = studentRepository;
+        this.facultyRepository = facultyRepository;
+        this.objectMapper = objectMapper;
+        this.rowWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.batchSize = batchSize;
+    }
+
+    @Transactional(readOnly = true)
+    public void exportStudents(OutputStream out) throws IOException {
+        writeNdjson(studentRepository.streamAllAsDto(), out);
+    }
+
+    @Transactional(readOnly = true)
+    public void exportFaculties(OutputStream out) throws IOException {
+        writeNdjson(facultyRepository.streamAllAsDto(), out);
+    }
+
+    private void writeNdjson(Stream<?> rows, OutputStream out) throws IOException {
+        try (rows; JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            int rowsInBatch = 0;
+            for (Iterator<?> iterator = rows.iterator(); iterator.hasNext(); ) {
+                rowWriter.writeValue(generator, iterator.next());
+                generator.writeRaw('\n');
+                if (++rowsInBatch == batchSize) {
+                    generator.flush();
+                    rowsInBatch = 0;
+                }
+            }
+        }
+    }
+}
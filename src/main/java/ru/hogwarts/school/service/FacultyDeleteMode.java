@@ -0,0 +1,20 @@
+package ru.hogwarts.school.service;
+
+/**
+ * What happens to a faculty's students when the faculty is deleted. Every mode is set-based:
+ * the students are deleted or updated with one statement, never one by one.
+ */
+public enum FacultyDeleteMode {
+    /**
+     * Delete the students, and their avatars, together with the faculty.
+     */
+    CASCADE,
+    /**
+     * Keep the students without a faculty.
+     */
+    DETACH,
+    /**
+     * Move the students to another faculty.
+     */
+    REASSIGN
+}
@@ -1,58 +1,382 @@
 package ru.hogwarts.school.service;
 
+import io.micrometer.core.annotation.Timed;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.hogwarts.school.cache.RegionStatistics;
+import ru.hogwarts.school.cache.SecondLevelCacheStatistics;
+import ru.hogwarts.school.cache.StudentCache;
+import ru.hogwarts.school.dto.BatchResult;
+import ru.hogwarts.school.dto.FacultyDto;
+import ru.hogwarts.school.dto.FacultyPatch;
+import ru.hogwarts.school.dto.FacultyStats;
+import ru.hogwarts.school.dto.PatchResult;
+import ru.hogwarts.school.dto.StudentDto;
+import ru.hogwarts.school.dto.VersionStamp;
+import ru.hogwarts.school.event.FacultyChangedEvent;
+import ru.hogwarts.school.event.FacultySnapshot;
+import ru.hogwarts.school.event.StudentSnapshot;
+import ru.hogwarts.school.event.StudentsDeletedEvent;
+import ru.hogwarts.school.event.StudentsMovedEvent;
+import ru.hogwarts.school.index.FacultyLookupIndex;
 import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.repository.AvatarDataRepository;
+import ru.hogwarts.school.repository.AvatarRepository;
+import ru.hogwarts.school.repository.FacultyIdName;
 import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.repository.FacultyRosterRow;
+import ru.hogwarts.school.repository.StudentRepository;
+import ru.hogwarts.school.stats.FacultyAgeStats;
+import ru.hogwarts.school.stats.LongestFacultyName;
 
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import javax.validation.Validator;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Predicate;
 
 @Service
+@Timed(value = "school.service", extraTags = {"service", "faculty"}, histogram = true)
 public class FacultyService {
+    static final int MAX_AUTOCOMPLETE_SIZE = 100;
+
     private final FacultyRepository facultyRepository;
+    private final LongestFacultyName longestFacultyName;
+    private final FacultyLookupIndex facultyLookupIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SecondLevelCacheStatistics secondLevelCacheStatistics;
+    private final EntityManager entityManager;
+    private final Validator validator;
+    private final StudentRepository studentRepository;
+    private final AvatarRepository avatarRepository;
+    private final AvatarDataRepository avatarDataRepository;
+    private final AvatarService avatarService;
+    private final StudentCache studentCache;
+    private final FacultyAgeStats facultyAgeStats;
 
-    public FacultyService(FacultyRepository facultyRepository) {
+    public FacultyService(FacultyRepository facultyRepository,
+                          LongestFacultyName longestFacultyName,
+                          FacultyLookupIndex facultyLookupIndex,
+                          ApplicationEventPublisher eventPublisher,
+                          SecondLevelCacheStatistics secondLevelCacheStatistics,
+                          EntityManager entityManager,
+                          Validator validator,
+                          StudentRepository studentRepository,
+                          AvatarRepository avatarRepository,
+                          AvatarDataRepository avatarDataRepository,
+                          AvatarService avatarService,
+                          StudentCache studentCache,
+                          FacultyAgeStats facultyAgeStats) {
         this.facultyRepository = facultyRepository;
+        this.longestFacultyName = longestFacultyName;
+        this.facultyLookupIndex = facultyLookupIndex;
+        this.eventPublisher = eventPublisher;
+        this.secondLevelCacheStatistics = secondLevelCacheStatistics;
+        this.entityManager = entityManager;
+        this.validator = validator;
+        this.studentRepository = studentRepository;
+        this.avatarRepository = avatarRepository;
+        this.avatarDataRepository = avatarDataRepository;
+        this.avatarService = avatarService;
+        this.studentCache = studentCache;
+        this.facultyAgeStats = facultyAgeStats;
     }
 
     public Faculty createFaculty(Faculty faculty) {
-        return facultyRepository.save(faculty);
+        Faculty saved = facultyRepository.save(faculty);
+        eventPublisher.publishEvent(FacultyChangedEvent.created(saved));
+        return saved;
     }
 
+    @Transactional(readOnly = true)
     public Optional<Faculty> findFaculty(Long id) {
         return facultyRepository.findById(id);
     }
 
+    /**
+     * Faculties by id, in request order, with the ids that do not exist. Faculties held in the
+     * second-level cache are read from it; the rest are loaded with a single {@code IN} query.
+     */
+    @Transactional(readOnly = true)
+    public BatchResult<Faculty> findFaculties(Collection<Long> ids) {
+        List<Long> distinct = IdBatches.distinct(ids);
+        return BatchResult.of(distinct, loadFaculties(distinct));
+    }
+
+    /**
+     * Loads faculties by id: {@code findById} for those in the second-level cache, which it serves without
+     * a statement, and one {@code IN} query for the rest, which the cache cannot serve.
+     */
+    private Map<Long, Faculty> loadFaculties(List<Long> ids) {
+        Cache secondLevelCache = entityManager.getEntityManagerFactory().getCache();
+        Map<Long, Faculty> found = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+        for (Long id : ids) {
+            if (secondLevelCache.contains(Faculty.class, id)) {
+                facultyRepository.findById(id).ifPresent(faculty -> found.put(id, faculty));
+            } else {
+                misses.add(id);
+            }
+        }
+        if (!misses.isEmpty()) {
+            facultyRepository.findAllById(misses).forEach(faculty -> found.put(faculty.getId(), faculty));
+        }
+        return found;
+    }
+
+    /**
+     * Version stamp for conditional GETs: read from the second-level cache when the faculty is there,
+     * otherwise as a two-column projection without loading the entity.
+     */
+    @Transactional(readOnly = true)
+    public Optional<VersionStamp> findFacultyVersion(Long id) {
+        if (entityManager.getEntityManagerFactory().getCache().contains(Faculty.class, id)) {
+            return facultyRepository.findById(id)
+                    .map(faculty -> new VersionStamp(faculty.getVersion(), faculty.getLastModified()));
+        }
+        return facultyRepository.findVersionById(id);
+    }
+
+    @Transactional
     public Optional<Faculty> editFaculty(Long id, Faculty faculty) {
         return facultyRepository.findById(id)
                 .map(existingFaculty -> {
+                    FacultySnapshot before = FacultySnapshot.of(existingFaculty);
                     existingFaculty.setName(faculty.getName());
                     existingFaculty.setColor(faculty.getColor());
-                    return facultyRepository.save(existingFaculty);
+                    Faculty saved = facultyRepository.save(existingFaculty);
+                    facultyRepository.flush();
+                    eventPublisher.publishEvent(FacultyChangedEvent.updated(before, saved));
+                    return saved;
                 });
     }
 
-    public boolean deleteFaculty(Long id) {
-        if (facultyRepository.existsById(id)) {
-            facultyRepository.deleteById(id);
-            return true;
+    /**
+     * Applies the fields present in the patch with a single {@code UPDATE} that matches both the id and
+     * {@code expectedVersion}. Both fields feed the lookup index, so the state before the change is always
+     * needed: it is read from the second-level cache when the cached faculty has the expected version,
+     * otherwise from a projection filtered by the same version. A name and color pair that is already
+     * taken is reported as a {@link DuplicateKeyException}.
+     */
+    @Transactional
+    public PatchResult patchFaculty(Long id, long expectedVersion, FacultyPatch patch) {
+        if (patch.isEmpty()) {
+            throw new IllegalArgumentException("Patch must change at least one field");
+        }
+        PatchValidation.of(validator, Faculty.class)
+                .check("name", patch.name())
+                .check("color", patch.color())
+                .orThrow();
+        Optional<FacultySnapshot> before = findCachedSnapshot(id, expectedVersion)
+                .or(() -> facultyRepository.findSnapshotByIdAndVersion(id, expectedVersion));
+        if (before.isEmpty()) {
+            return facultyRepository.existsById(id) ? PatchResult.conflict() : PatchResult.notFound();
+        }
+        if (update(id, expectedVersion, patch) == 0) {
+            // changed or deleted since the state before was read
+            return PatchResult.conflict();
+        }
+        FacultySnapshot after = new FacultySnapshot(id,
+                patch.name() != null ? patch.name() : before.get().name(),
+                patch.color() != null ? patch.color() : before.get().color());
+        eventPublisher.publishEvent(new FacultyChangedEvent(before.get(), after));
+        return PatchResult.updated(expectedVersion + 1);
+    }
+
+    /**
+     * Runs the versioned update; see {@code StudentService} for why a violation is rethrown.
+     */
+    private int update(Long id, long expectedVersion, FacultyPatch patch) {
+        try {
+            return facultyRepository.patch(id, expectedVersion, patch);
+        } catch (DataIntegrityViolationException e) {
+            if (IntegrityViolations.isUniqueViolation(e)) {
+                throw new DuplicateKeyException("A faculty with this name and color already exists", e);
+            }
+            throw e;
+        }
+    }
+
+    private Optional<FacultySnapshot> findCachedSnapshot(Long id, long version) {
+        if (!entityManager.getEntityManagerFactory().getCache().contains(Faculty.class, id)) {
+            return Optional.empty();
+        }
+        return facultyRepository.findById(id)
+                .filter(faculty -> Objects.equals(faculty.getVersion(), version))
+                .map(FacultySnapshot::of);
+    }
+
+    /**
+     * Deletes the faculty after disposing of its students as {@code mode} says, with set-based statements:
+     * the students are never loaded as entities, so Hibernate's cascade finds the collection already empty.
+     * {@code targetId} names the receiving faculty for {@link FacultyDeleteMode#REASSIGN}.
+     */
+    @Transactional
+    public boolean deleteFaculty(Long id, FacultyDeleteMode mode, Long targetId) {
+        Faculty target = mode == FacultyDeleteMode.REASSIGN ? findTarget(id, targetId)
+                .orElseThrow(() -> new IllegalArgumentException("Faculty " + targetId + " does not exist")) : null;
+        return facultyRepository.findById(id)
+                .map(faculty -> {
+                    if (mode == FacultyDeleteMode.CASCADE) {
+                        deleteStudentsInBulk(id);
+                    } else {
+                        moveStudentsInBulk(id, target);
+                    }
+                    facultyRepository.delete(faculty);
+                    eventPublisher.publishEvent(FacultyChangedEvent.deleted(faculty));
+                    return true;
+                })
+                .orElse(false);
+    }
+
+    /**
+     * Moves every student of faculty {@code fromId} to faculty {@code toId} with one {@code UPDATE}.
+     *
+     * @return the number of students moved, or empty when either faculty does not exist
+     */
+    @Transactional
+    public Optional<Integer> moveStudents(Long fromId, Long toId) {
+        Optional<Faculty> target = findTarget(fromId, toId);
+        if (target.isEmpty() || facultyRepository.findById(fromId).isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(moveStudentsInBulk(fromId, target.get()));
+    }
+
+    private Optional<Faculty> findTarget(Long fromId, Long targetId) {
+        if (targetId == null) {
+            throw new IllegalArgumentException("A target faculty is required to move students");
         }
-        return false;
+        if (targetId.equals(fromId)) {
+            throw new IllegalArgumentException("Students cannot be moved to the faculty they are in");
+        }
+        return facultyRepository.findById(targetId);
     }
 
+    private int moveStudentsInBulk(Long facultyId, Faculty target) {
+        int moved = studentRepository.moveInBulkByFacultyId(facultyId, target, Instant.now());
+        if (moved > 0) {
+            studentCache.evictFaculty(facultyId);
+            eventPublisher.publishEvent(new StudentsMovedEvent(facultyId, target != null ? target.getId() : null, moved));
+        }
+        return moved;
+    }
+
+    /**
+     * Deletes the faculty's students and their avatars with one statement per table. The students are read
+     * once as snapshots for the in-memory indexes and aggregates, and the avatars once for the files that
+     * are deleted from the store after the commit.
+     */
+    private void deleteStudentsInBulk(Long facultyId) {
+        List<StudentSnapshot> students = studentRepository.findSnapshotsByFacultyId(facultyId);
+        if (students.isEmpty()) {
+            return;
+        }
+        avatarService.deleteFilesAfterCommit(avatarRepository.findDtosByStudentFacultyId(facultyId));
+        avatarDataRepository.deleteInBulkByStudentFacultyId(facultyId);
+        avatarRepository.deleteInBulkByStudentFacultyId(facultyId);
+        studentRepository.deleteInBulkByFacultyId(facultyId);
+        studentCache.evictFaculty(facultyId);
+        eventPublisher.publishEvent(new StudentsDeletedEvent(facultyId, students));
+    }
+
+    @Transactional(readOnly = true)
     public List<Faculty> getFacultiesByColor(String color) {
+        if (facultyLookupIndex.isReady()) {
+            return findIndexed(facultyLookupIndex.idsByColor(color), faculty -> color.equals(faculty.getColor()));
+        }
         return facultyRepository.findByColor(color);
     }
 
+    @Transactional(readOnly = true)
     public List<Faculty> getFacultiesByNameOrColor(String searchString) {
+        if (facultyLookupIndex.isReady()) {
+            return findIndexed(facultyLookupIndex.idsByNameOrColor(searchString),
+                    faculty -> searchString.equalsIgnoreCase(faculty.getName())
+                            || searchString.equalsIgnoreCase(faculty.getColor()));
+        }
         return facultyRepository.findByNameIgnoreCaseOrColorIgnoreCase(searchString, searchString);
     }
 
+    @Transactional(readOnly = true)
+    public List<FacultyDto> autocompleteFaculties(String prefix, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_AUTOCOMPLETE_SIZE));
+        if (facultyLookupIndex.isReady()) {
+            return facultyLookupIndex.completeName(prefix, pageSize).stream()
+                    .map(faculty -> new FacultyDto(faculty.id(), faculty.name(), faculty.color()))
+                    .toList();
+        }
+        return facultyRepository.findByNameStartingWithIgnoreCaseOrderByNameAscIdAsc(prefix, PageRequest.of(0, pageSize))
+                .stream()
+                .map(faculty -> new FacultyDto(faculty.getId(), faculty.getName(), faculty.getColor()))
+                .toList();
+    }
+
+    /**
+     * Loads the faculties the lookup index points at, see {@link #loadFaculties}. The match is re-checked
+     * on the loaded entities, so a stale index entry can never leak into the result.
+     */
+    private List<Faculty> findIndexed(List<Long> ids, Predicate<Faculty> matches) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return loadFaculties(ids).values().stream()
+                .filter(matches)
+                .sorted(Comparator.comparing(Faculty::getId))
+                .toList();
+    }
+
+    /**
+     * Students of a faculty as read by a single LEFT JOIN; empty when the faculty does not exist.
+     * A faculty without students yields one row with no student columns.
+     */
+    @Transactional(readOnly = true)
+    public Optional<List<StudentDto>> getFacultyStudents(Long id) {
+        List<FacultyRosterRow> rows = facultyRepository.findRoster(id);
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(rows.stream()
+                .filter(row -> row.getStudentId() != null)
+                .map(row -> new StudentDto(row.getStudentId(), row.getName(), row.getAge(), row.getFacultyId()))
+                .toList());
+    }
+
+    @Transactional(readOnly = true)
     public String getLongestFacultyName() {
-        return facultyRepository.findAll().stream()
-                .map(Faculty::getName)
-                .filter(name -> name != null && !name.isEmpty())
-                .max((name1, name2) -> Integer.compare(name1.length(), name2.length()))
+        if (longestFacultyName.isReady()) {
+            return longestFacultyName.get();
+        }
+        return facultyRepository.findLongestFaculty()
+                .map(FacultyIdName::getName)
                 .orElse("");
     }
-}
\ No newline at end of file
+
+    /**
+     * Student count and age statistics of every faculty with students, ordered by faculty id:
+     * from memory once {@link FacultyAgeStats} is seeded, otherwise from one grouped query.
+     */
+    @Transactional(readOnly = true)
+    public List<FacultyStats> getFacultyStats() {
+        if (facultyAgeStats.isReady()) {
+            return facultyAgeStats.getStats();
+        }
+        return studentRepository.findFacultyStats();
+    }
+
+    public List<RegionStatistics> getCacheStatistics() {
+        return secondLevelCacheStatistics.getRegionStatistics();
+    }
+}
@@ -0,0 +1,36 @@
+package ru.hogwarts.school.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Validation shared by the multi-get lookups.
+ */
+final class IdBatches {
+    static final int MAX_IDS = 500;
+
+    private IdBatches() {
+    }
+
+    /**
+     * The ids without duplicates, in first-seen order.
+     *
+     * @throws IllegalArgumentException when there are no ids or more than {@value #MAX_IDS}
+     */
+    static List<Long> distinct(Collection<Long> ids) {
+        LinkedHashSet<Long> distinct = new LinkedHashSet<>();
+        if (ids != null) {
+            ids.stream().filter(Objects::nonNull).forEach(distinct::add);
+        }
+        if (distinct.isEmpty()) {
+            throw new IllegalArgumentException("At least one id is required");
+        }
+        if (distinct.size() > MAX_IDS) {
+            throw new IllegalArgumentException("At most " + MAX_IDS + " ids can be requested at once");
+        }
+        return new ArrayList<>(distinct);
+    }
+}
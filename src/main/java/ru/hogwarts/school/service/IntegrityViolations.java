@@ -0,0 +1,22 @@
+package ru.hogwarts.school.service;
+
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+
+/**
+ * Tells a unique-key violation from other integrity violations by its standard SQLState, which both H2
+ * and PostgreSQL report; Hibernate's translation alone does not say which constraint kind failed.
+ */
+final class IntegrityViolations {
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    private IntegrityViolations() {
+    }
+
+    static boolean isUniqueViolation(DataIntegrityViolationException e) {
+        return NestedExceptionUtils.getMostSpecificCause(e) instanceof SQLException sql
+                && UNIQUE_VIOLATION.equals(sql.getSQLState());
+    }
+}
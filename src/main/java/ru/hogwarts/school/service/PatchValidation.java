@@ -0,0 +1,44 @@
+package ru.hogwarts.school.service;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks the fields of a partial update against the entity's bean validation constraints. A bulk update
+ * never passes through Hibernate's pre-update validation, so patches are validated up front.
+ */
+final class PatchValidation<T> {
+    private final Validator validator;
+    private final Class<T> type;
+    private final List<String> messages = new ArrayList<>();
+
+    private PatchValidation(Validator validator, Class<T> type) {
+        this.validator = validator;
+        this.type = type;
+    }
+
+    static <T> PatchValidation<T> of(Validator validator, Class<T> type) {
+        return new PatchValidation<>(validator, type);
+    }
+
+    /**
+     * Validates {@code value} as the entity's {@code property}; a {@code null} value is not part of the patch.
+     */
+    PatchValidation<T> check(String property, Object value) {
+        if (value != null) {
+            validator.validateValue(type, property, value).stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .forEach(messages::add);
+        }
+        return this;
+    }
+
+    void orThrow() {
+        if (!messages.isEmpty()) {
+            throw new IllegalArgumentException(String.join("; ", messages));
+        }
+    }
+}
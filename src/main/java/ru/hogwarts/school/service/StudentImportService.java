@@ -0,0 +1,249 @@
+package ru.hogwarts.school.service;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.dto.BulkImportError;
+import ru.hogwarts.school.dto.BulkImportResult;
+import ru.hogwarts.school.dto.StudentImportRow;
+import ru.hogwarts.school.event.StudentChangedEvent;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+
+import javax.persistence.EntityManager;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Bulk student import from a JSON array or CSV ({@code name,age,facultyId}) stream.
+ * <p>
+ * Rows are validated against the {@link Student} constraints and persisted in transactions of
+ * {@code school.import.batch-size} rows, which Hibernate sends as JDBC batches thanks to pooled sequence ids.
+ * If a batch fails (e.g. a duplicate name or an unknown faculty), its rows are retried one by one
+ * so that only the offending rows are reported.
+ */
+@Service
+public class StudentImportService {
+    private static final Logger logger = LoggerFactory.getLogger(StudentImportService.class);
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+
+    public StudentImportService(EntityManager entityManager,
+                                PlatformTransactionManager transactionManager,
+                                Validator validator,
+                                ObjectMapper objectMapper,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${school.import.batch-size:500}") int batchSize) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Elements of the array that are not objects are reported as row errors. A syntax error ends the import,
+     * since the parser cannot find the next element after it: it is reported against the row it occurred in,
+     * and the rows before it are still imported.
+     */
+    public BulkImportResult importJson(InputStream in) throws IOException {
+        ImportRun run = new ImportRun();
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Expected a JSON array of students");
+            }
+            try {
+                JsonToken token;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    if (token == null) {
+                        run.reject(null, "Unexpected end of input, the array of students is not closed");
+                        break;
+                    }
+                    if (token != JsonToken.START_OBJECT) {
+                        String found = parser.getText();
+                        parser.skipChildren();
+                        run.reject(null, "Expected a student object but found '" + found + "'");
+                        continue;
+                    }
+                    JsonNode node = objectMapper.readTree(parser);
+                    try {
+                        run.accept(objectMapper.treeToValue(node, StudentImportRow.class));
+                    } catch (JsonProcessingException e) {
+                        run.reject(node.path("name").asText(null), e.getOriginalMessage());
+                    }
+                }
+            } catch (JsonParseException e) {
+                run.reject(null, e.getOriginalMessage());
+            }
+        }
+        return run.finish();
+    }
+
+    public BulkImportResult importCsv(Reader reader) throws IOException {
+        ImportRun run = new ImportRun();
+        BufferedReader lines = new BufferedReader(reader);
+        boolean firstLine = true;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            List<String> fields = parseCsvLine(line);
+            if (firstLine && "name".equalsIgnoreCase(fields.get(0).trim())) {
+                firstLine = false;
+                continue;
+            }
+            firstLine = false;
+            try {
+                run.accept(new StudentImportRow(
+                        fields.get(0).trim(),
+                        fields.size() > 1 && !fields.get(1).isBlank() ? Integer.valueOf(fields.get(1).trim()) : null,
+                        fields.size() > 2 && !fields.get(2).isBlank() ? Long.valueOf(fields.get(2).trim()) : null));
+            } catch (NumberFormatException e) {
+                run.reject(fields.get(0), "Invalid number: " + e.getMessage());
+            }
+        }
+        return run.finish();
+    }
+
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private Student toStudent(StudentImportRow row) {
+        Student student = new Student();
+        student.setName(row.name());
+        if (row.age() != null) {
+            student.setAge(row.age());
+        }
+        return student;
+    }
+
+    /**
+     * Persists the rows and publishes their events inside the caller's transaction, so the listeners run
+     * once it commits, as they do for single writes.
+     */
+    private List<Student> persistAll(List<PendingRow> rows) {
+        List<Student> students = new ArrayList<>(rows.size());
+        for (PendingRow row : rows) {
+            Student student = toStudent(row.data());
+            if (row.data().facultyId() != null) {
+                student.setFaculty(entityManager.getReference(Faculty.class, row.data().facultyId()));
+            }
+            entityManager.persist(student);
+            students.add(student);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        students.forEach(student -> eventPublisher.publishEvent(StudentChangedEvent.created(student)));
+        return students;
+    }
+
+    private record PendingRow(int row, StudentImportRow data) {
+    }
+
+    private class ImportRun {
+        private final List<PendingRow> pending = new ArrayList<>(batchSize);
+        private final List<BulkImportError> errors = new ArrayList<>();
+        private int received;
+        private int imported;
+
+        void accept(StudentImportRow data) {
+            received++;
+            Set<ConstraintViolation<Student>> violations = validator.validate(toStudent(data));
+            if (!violations.isEmpty()) {
+                errors.add(new BulkImportError(received, data.name(),
+                        violations.stream().map(ConstraintViolation::getMessage).sorted().toList()));
+                return;
+            }
+            pending.add(new PendingRow(received, data));
+            if (pending.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void reject(String name, String message) {
+            received++;
+            errors.add(new BulkImportError(received, name, List.of(message)));
+        }
+
+        BulkImportResult finish() {
+            flush();
+            errors.sort(Comparator.comparingInt(BulkImportError::row));
+            return new BulkImportResult(received, imported, errors);
+        }
+
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            try {
+                imported(transactionTemplate.execute(status -> persistAll(pending)));
+            } catch (RuntimeException e) {
+                logger.debug("Import batch of {} rows failed, retrying row by row", pending.size(), e);
+                for (PendingRow row : pending) {
+                    try {
+                        imported(transactionTemplate.execute(status -> persistAll(List.of(row))));
+                    } catch (RuntimeException rowFailure) {
+                        errors.add(new BulkImportError(row.row(), row.data().name(),
+                                List.of(NestedExceptionUtils.getMostSpecificCause(rowFailure).getMessage())));
+                    }
+                }
+            }
+            pending.clear();
+        }
+
+        private void imported(List<Student> students) {
+            imported += students.size();
+        }
+    }
+}
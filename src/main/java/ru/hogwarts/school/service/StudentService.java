@@ -1,144 +1,392 @@
 package ru.hogwarts.school.service;
 
+import io.micrometer.core.annotation.Timed;
+import org.hibernate.Hibernate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.hogwarts.school.batch.BatchReport;
+import ru.hogwarts.school.batch.MergeOrder;
+import ru.hogwarts.school.batch.StudentBatchEngine;
+import ru.hogwarts.school.batch.WorkerPool;
+import ru.hogwarts.school.cache.CacheStatistics;
+import ru.hogwarts.school.cache.StudentCache;
+import ru.hogwarts.school.dto.BatchResult;
+import ru.hogwarts.school.dto.KeysetPage;
+import ru.hogwarts.school.dto.PatchResult;
+import ru.hogwarts.school.dto.StudentDto;
+import ru.hogwarts.school.dto.StudentPatch;
+import ru.hogwarts.school.dto.VersionStamp;
+import ru.hogwarts.school.event.StudentChangedEvent;
+import ru.hogwarts.school.event.StudentRenamedEvent;
+import ru.hogwarts.school.event.StudentSnapshot;
+import ru.hogwarts.school.index.StudentAgeIndex;
+import ru.hogwarts.school.index.StudentNameIndex;
+import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.StudentFacultyRow;
 import ru.hogwarts.school.repository.StudentRepository;
+import ru.hogwarts.school.stats.StudentAggregates;
 
+import javax.persistence.EntityManager;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
+@Timed(value = "school.service", extraTags = {"service", "student"}, histogram = true)
 public class StudentService {
+    static final int MAX_PAGE_SIZE = 1000;
+    static final int ID_BATCH_SIZE = 1000;
+    static final int MAX_SEARCH_PAGE_SIZE = 100;
+
     private final StudentRepository studentRepository;
+    private final StudentCache studentCache;
+    private final StudentAggregates studentAggregates;
+    private final StudentAgeIndex studentAgeIndex;
+    private final StudentNameIndex studentNameIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final StudentBatchEngine studentBatchEngine;
+    private final EntityManager entityManager;
+    private final Validator validator;
 
-    public StudentService(StudentRepository studentRepository) {
+    public StudentService(StudentRepository studentRepository,
+                          StudentCache studentCache,
+                          StudentAggregates studentAggregates,
+                          StudentAgeIndex studentAgeIndex,
+                          StudentNameIndex studentNameIndex,
+                          ApplicationEventPublisher eventPublisher,
+                          StudentBatchEngine studentBatchEngine,
+                          EntityManager entityManager,
+                          Validator validator) {
         this.studentRepository = studentRepository;
+        this.studentCache = studentCache;
+        this.studentAggregates = studentAggregates;
+        this.studentAgeIndex = studentAgeIndex;
+        this.studentNameIndex = studentNameIndex;
+        this.eventPublisher = eventPublisher;
+        this.studentBatchEngine = studentBatchEngine;
+        this.entityManager = entityManager;
+        this.validator = validator;
     }
 
+    @Transactional
     public Student createStudent(Student student) {
-        return studentRepository.save(student);
+        student.setFaculty(resolveFaculty(student.getFaculty()));
+        Student saved = studentRepository.save(student);
+        eventPublisher.publishEvent(StudentChangedEvent.created(saved));
+        return saved;
     }
 
+    /**
+     * The student with its faculty. A miss is loaded together with the faculty, so the cached entry
+     * carries no lazy proxy bound to the loading request's session.
+     */
+    @Transactional(readOnly = true)
     public Optional<Student> findStudent(Long id) {
-        return studentRepository.findById(id);
+        return studentCache.get(id, studentRepository::findWithFacultyById);
+    }
+
+    /**
+     * Students by id, in request order, with the ids that do not exist. Cached students are served from
+     * the cache; the misses are loaded together with their faculties in a single query.
+     */
+    @Transactional(readOnly = true)
+    public BatchResult<Student> findStudents(Collection<Long> ids) {
+        List<Long> distinct = IdBatches.distinct(ids);
+        Map<Long, Student> found = studentCache.getAll(distinct, misses ->
+                studentRepository.findWithFacultyByIdIn(misses).stream()
+                        .collect(Collectors.toMap(Student::getId, Function.identity())));
+        return BatchResult.of(distinct, found);
+    }
+
+    /**
+     * Version stamp of the student for conditional GETs, covering the embedded faculty as well: taken from
+     * the cache when the student is there with its faculty loaded, otherwise read as a projection joined
+     * to the faculty without loading either entity.
+     */
+    @Transactional(readOnly = true)
+    public Optional<VersionStamp> findStudentVersion(Long id) {
+        Optional<Student> cached = studentCache.peek(id)
+                .filter(student -> student.getFaculty() == null || Hibernate.isInitialized(student.getFaculty()));
+        if (cached.isPresent()) {
+            Student student = cached.get();
+            Faculty faculty = student.getFaculty();
+            return Optional.of(faculty == null
+                    ? new VersionStamp(student.getVersion(), student.getLastModified())
+                    : new VersionStamp(student.getVersion(), student.getLastModified(),
+                    faculty.getVersion(), faculty.getLastModified()));
+        }
+        return studentRepository.findVersionById(id);
+    }
+
+    /**
+     * The student's faculty in one query; present with no faculty columns for a student without a faculty.
+     */
+    @Transactional(readOnly = true)
+    public Optional<StudentFacultyRow> findStudentFaculty(Long id) {
+        return studentRepository.findFacultyRow(id);
     }
 
+    @Transactional
     public Optional<Student> editStudent(Long id, Student student) {
         return studentRepository.findById(id)
                 .map(existingStudent -> {
+                    StudentSnapshot before = StudentSnapshot.of(existingStudent);
                     existingStudent.setName(student.getName());
                     existingStudent.setAge(student.getAge());
-                    existingStudent.setFaculty(student.getFaculty());
-                    return studentRepository.save(existingStudent);
+                    existingStudent.setFaculty(resolveFaculty(student.getFaculty()));
+                    Student saved = studentRepository.save(existingStudent);
+                    studentRepository.flush();
+                    studentCache.evict(id);
+                    eventPublisher.publishEvent(StudentChangedEvent.updated(before, saved));
+                    return saved;
                 });
     }
 
-    public boolean deleteStudent(Long id) {
-        if (studentRepository.existsById(id)) {
-            studentRepository.deleteById(id);
-            return true;
+    /**
+     * Swaps a faculty the client referenced by id for the managed one: Hibernate takes a detached
+     * reference without a version for an unsaved faculty and would refuse to save the student.
+     */
+    private Faculty resolveFaculty(Faculty faculty) {
+        if (faculty == null) {
+            return null;
+        }
+        if (faculty.getId() == null) {
+            throw new IllegalArgumentException("Faculty must be referenced by id");
+        }
+        Faculty managed = entityManager.find(Faculty.class, faculty.getId());
+        if (managed == null) {
+            throw new IllegalArgumentException("Faculty " + faculty.getId() + " does not exist");
+        }
+        return managed;
+    }
+
+    /**
+     * Applies the fields present in the patch with a single {@code UPDATE} that matches both the id and
+     * {@code expectedVersion}, so concurrent edits are detected without locking the row. A rename is only
+     * that statement and is published as a {@link StudentRenamedEvent}. A new age or faculty moves the
+     * student in the age index and the statistics, which need the state before the change: it comes from
+     * the cache when the cached student has the expected version and otherwise from a projection filtered
+     * by the same version. A taken name is reported as a {@link DuplicateKeyException} and a faculty that
+     * does not exist as an {@link IllegalArgumentException}.
+     */
+    @Transactional
+    public PatchResult patchStudent(Long id, long expectedVersion, StudentPatch patch) {
+        if (patch.isEmpty()) {
+            throw new IllegalArgumentException("Patch must change at least one field");
+        }
+        PatchValidation.of(validator, Student.class)
+                .check("name", patch.name())
+                .check("age", patch.age())
+                .orThrow();
+        if (patch.age() == null && patch.facultyId() == null) {
+            if (update(id, expectedVersion, patch) == 0) {
+                return studentRepository.existsById(id) ? PatchResult.conflict() : PatchResult.notFound();
+            }
+            studentCache.evict(id);
+            eventPublisher.publishEvent(new StudentRenamedEvent(id, patch.name()));
+            return PatchResult.updated(expectedVersion + 1);
         }
-        return false;
+        Optional<StudentSnapshot> before = studentCache.peek(id)
+                .filter(cached -> Objects.equals(cached.getVersion(), expectedVersion))
+                .map(StudentSnapshot::of)
+                .or(() -> studentRepository.findSnapshotByIdAndVersion(id, expectedVersion));
+        if (before.isEmpty()) {
+            return studentRepository.existsById(id) ? PatchResult.conflict() : PatchResult.notFound();
+        }
+        if (update(id, expectedVersion, patch) == 0) {
+            // changed or deleted since the state before was read
+            return PatchResult.conflict();
+        }
+        studentCache.evict(id);
+        eventPublisher.publishEvent(new StudentChangedEvent(before.get(), applyPatch(before.get(), patch)));
+        return PatchResult.updated(expectedVersion + 1);
+    }
+
+    /**
+     * Runs the versioned update. Integrity violations are rethrown as exceptions: the failed statement has
+     * already marked the transaction for rollback, so the patch cannot end with a plain result.
+     */
+    private int update(Long id, long expectedVersion, StudentPatch patch) {
+        try {
+            return studentRepository.patch(id, expectedVersion, patch);
+        } catch (DataIntegrityViolationException e) {
+            if (IntegrityViolations.isUniqueViolation(e)) {
+                throw new DuplicateKeyException("Student name '" + patch.name() + "' is already taken", e);
+            }
+            if (patch.facultyId() != null && patch.facultyId().isPresent()) {
+                throw new IllegalArgumentException("Faculty " + patch.facultyId().get() + " does not exist");
+            }
+            throw e;
+        }
+    }
+
+    private static StudentSnapshot applyPatch(StudentSnapshot student, StudentPatch patch) {
+        return new StudentSnapshot(student.id(),
+                patch.name() != null ? patch.name() : student.name(),
+                patch.age() != null ? patch.age() : student.age(),
+                patch.facultyId() != null ? patch.facultyId().orElse(null) : student.facultyId());
     }
 
+    @Transactional
+    public boolean deleteStudent(Long id) {
+        return studentRepository.findById(id)
+                .map(existingStudent -> {
+                    studentRepository.delete(existingStudent);
+                    studentCache.evict(id);
+                    eventPublisher.publishEvent(StudentChangedEvent.deleted(existingStudent));
+                    return true;
+                })
+                .orElse(false);
+    }
+
+    @Transactional(readOnly = true)
     public List<Student> getStudentsByAge(int age) {
+        if (studentAgeIndex.isReady()) {
+            return findByIndexedAge(age, age);
+        }
         return studentRepository.findByAge(age);
     }
 
+    @Transactional(readOnly = true)
     public List<Student> getStudentsByAgeBetween(int minAge, int maxAge) {
+        if (studentAgeIndex.isReady()) {
+            return findByIndexedAge(minAge, maxAge);
+        }
         return studentRepository.findByAgeBetween(minAge, maxAge);
     }
 
+    /**
+     * Resolves ids from the age index and fetches them in batches of {@link #ID_BATCH_SIZE}.
+     * Ages are re-checked on the loaded entities, so a stale index entry can never leak into the result.
+     */
+    private List<Student> findByIndexedAge(int minAge, int maxAge) {
+        long[] ids = studentAgeIndex.idsBetween(minAge, maxAge);
+        List<Student> students = new ArrayList<>(ids.length);
+        for (int from = 0; from < ids.length; from += ID_BATCH_SIZE) {
+            int to = Math.min(from + ID_BATCH_SIZE, ids.length);
+            List<Long> batch = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                batch.add(ids[i]);
+            }
+            for (Student student : studentRepository.findAllById(batch)) {
+                if (student.getAge() >= minAge && student.getAge() <= maxAge) {
+                    students.add(student);
+                }
+            }
+        }
+        students.sort(Comparator.comparing(Student::getId));
+        return students;
+    }
+
+    /**
+     * Case-insensitive substring search over student names, ranked by the name index
+     * (exact, prefix, word start, anywhere). Only the requested page is loaded from the database.
+     */
+    @Transactional(readOnly = true)
+    public Page<StudentDto> searchStudents(String query, int page, int size) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query must not be blank");
+        }
+        PageRequest pageRequest = PageRequest.of(Math.max(page, 0), Math.max(1, Math.min(size, MAX_SEARCH_PAGE_SIZE)));
+        if (!studentNameIndex.isReady()) {
+            return studentRepository.findByNameContainingIgnoreCase(query.strip(), pageRequest.withSort(Sort.by("id")))
+                    .map(student -> new StudentDto(student.getId(), student.getName(), student.getAge(),
+                            student.getFaculty() != null ? student.getFaculty().getId() : null));
+        }
+        StudentNameIndex.SearchResult result = studentNameIndex.search(query,
+                (int) Math.min(pageRequest.getOffset(), Integer.MAX_VALUE - pageRequest.getPageSize()),
+                pageRequest.getPageSize());
+        List<Long> ids = Arrays.stream(result.ids()).boxed().toList();
+        Map<Long, StudentDto> loaded = ids.isEmpty() ? Map.of() : studentRepository.findDtosByIdIn(ids).stream()
+                .collect(Collectors.toMap(StudentDto::id, Function.identity()));
+        List<StudentDto> content = ids.stream()
+                .map(loaded::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return new PageImpl<>(content, pageRequest, result.total());
+    }
+
+    @Transactional(readOnly = true)
     public Integer getTotalCount() {
+        if (studentAggregates.isReady()) {
+            return studentAggregates.getCount();
+        }
         return studentRepository.countAllStudents();
     }
 
+    @Transactional(readOnly = true)
     public Double getAverageAge() {
+        if (studentAggregates.isReady()) {
+            return studentAggregates.getAverageAge();
+        }
         return studentRepository.findAverageAge();
     }
 
+    @Transactional(readOnly = true)
     public List<Student> getLastFiveStudents() {
         return studentRepository.findLastFiveStudents();
     }
 
-    public List<Student> getAllStudents() {
-        return studentRepository.findAll();
+    @Transactional(readOnly = true)
+    public KeysetPage<Student> getStudentsAfter(long after, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<Student> students = studentRepository.findByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, pageSize));
+        Long nextCursor = students.size() == pageSize ? students.get(students.size() - 1).getId() : null;
+        return new KeysetPage<>(students, nextCursor);
     }
 
-    public void printStudentsParallel() {
-        List<Student> students = getAllStudents();
-
-        if (students.size() < 6) {
-            System.out.println("Недостаточно студентов для демонстрации (нужно минимум 6)");
-            return;
-        }
-
-        // Основной поток - первые два имени
-        System.out.println(students.get(0).getName());
-        System.out.println(students.get(1).getName());
-
-        // Первый параллельный поток - третий и четвертый студент
-        Thread thread1 = new Thread(() -> {
-            System.out.println(students.get(2).getName());
-            System.out.println(students.get(3).getName());
-        });
-
-        // Второй параллельный поток - пятый и шестой студент
-        Thread thread2 = new Thread(() -> {
-            System.out.println(students.get(4).getName());
-            System.out.println(students.get(5).getName());
-        });
-
-        thread1.start();
-        thread2.start();
-
-        try {
-            thread1.join();
-            thread2.join();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            System.out.println("Поток был прерван");
+    /**
+     * Walks every student in id order over a forward-only cursor. Each student is detached
+     * after the action so the persistence context, and memory use, stays constant.
+     */
+    @Transactional(readOnly = true)
+    public void forEachStudent(Consumer<Student> action) {
+        try (Stream<Student> students = studentRepository.streamAllOrderedById()) {
+            students.forEach(student -> {
+                action.accept(student);
+                entityManager.detach(student);
+            });
         }
     }
 
-    public void printStudentsSynchronized() {
-        List<Student> students = getAllStudents();
-
-        if (students.size() < 6) {
-            System.out.println("Недостаточно студентов для демонстрации (нужно минимум 6)");
-            return;
-        }
-
-        // Основной поток - первые два имени
-        printStudentNameSync(students.get(0).getName());
-        printStudentNameSync(students.get(1).getName());
-
-        // Первый параллельный поток - третий и четвертый студент
-        Thread thread1 = new Thread(() -> {
-            printStudentNameSync(students.get(2).getName());
-            printStudentNameSync(students.get(3).getName());
-        });
-
-        // Второй параллельный поток - пятый и шестой студент
-        Thread thread2 = new Thread(() -> {
-            printStudentNameSync(students.get(4).getName());
-            printStudentNameSync(students.get(5).getName());
-        });
+    public CacheStatistics getCacheStatistics() {
+        return studentCache.getStatistics();
+    }
 
-        thread1.start();
-        thread2.start();
+    @Transactional(readOnly = true)
+    public List<Student> getAllStudents() {
+        return studentRepository.findAll();
+    }
 
-        try {
-            thread1.join();
-            thread2.join();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            System.out.println("Поток был прерван");
-        }
+    /**
+     * Prints every student name through the batch engine. With {@link MergeOrder#ORDERED} the names come out
+     * in id order; otherwise each chunk is printed as soon as a worker finishes it.
+     */
+    @Transactional(readOnly = true)
+    public BatchReport printStudents(WorkerPool pool, MergeOrder order) {
+        return studentBatchEngine.run("print-names", studentRepository.streamAllAsDto(), StudentDto::name,
+                pool, order, System.out::println);
     }
 
-    // Синхронизированный метод для вывода имен
-    synchronized void printStudentNameSync(String name) {
-        System.out.println(name);
+    public Optional<BatchReport> getLastBatchReport() {
+        return studentBatchEngine.getLastReport();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,183 @@
+package ru.hogwarts.school.stats;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.hogwarts.school.dto.FacultyStats;
+import ru.hogwarts.school.event.StudentChangedEvent;
+import ru.hogwarts.school.event.StudentSnapshot;
+import ru.hogwarts.school.event.StudentsDeletedEvent;
+import ru.hogwarts.school.event.StudentsMovedEvent;
+import ru.hogwarts.school.repository.FacultyAgeCount;
+import ru.hogwarts.school.repository.StudentRepository;
+import ru.hogwarts.school.routing.RoutingContext;
+
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Student count and average, minimum and maximum age per faculty, so the per-faculty report is built from
+ * memory in O(#faculties) instead of from every student. Each faculty keeps a histogram of ages, which lets
+ * the minimum and maximum survive removals. Seeded from one {@code GROUP BY faculty, age} query once the
+ * application is ready, updated from {@link StudentChangedEvent}s, {@link StudentsMovedEvent}s and
+ * {@link StudentsDeletedEvent}s, and periodically reconciled against the database like
+ * {@link StudentAggregates}, inside the same {@link StudentCommitGate}. Faculties without students are
+ * not listed.
+ */
+@Component
+public class FacultyAgeStats {
+    private static final Logger logger = LoggerFactory.getLogger(FacultyAgeStats.class);
+
+    private final StudentRepository studentRepository;
+    private final StudentCommitGate commitGate;
+    private NavigableMap<Long, AgeHistogram> faculties;
+
+    public FacultyAgeStats(StudentRepository studentRepository, StudentCommitGate commitGate) {
+        this.studentRepository = studentRepository;
+        this.commitGate = commitGate;
+    }
+
+    public synchronized boolean isReady() {
+        return faculties != null;
+    }
+
+    /**
+     * Statistics of every faculty with students, ordered by faculty id.
+     */
+    public synchronized List<FacultyStats> getStats() {
+        return faculties.entrySet().stream()
+                .map(entry -> entry.getValue().toStats(entry.getKey()))
+                .toList();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${school.aggregates.reconcile-interval:PT5M}",
+            fixedDelayString = "${school.aggregates.reconcile-interval:PT5M}")
+    public void reconcile() {
+        commitGate.runExclusively(() -> {
+            NavigableMap<Long, AgeHistogram> fresh = new TreeMap<>();
+            for (FacultyAgeCount row : RoutingContext.onPrimary(studentRepository::countByFacultyAndAge)) {
+                fresh.computeIfAbsent(row.getFacultyId(), id -> new AgeHistogram())
+                        .add(row.getAge(), row.getStudentCount());
+            }
+            synchronized (this) {
+                if (faculties != null && !faculties.equals(fresh)) {
+                    logger.warn("Faculty age statistics drifted, reconciled {} faculties", fresh.size());
+                }
+                faculties = fresh;
+            }
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStudentChanged(StudentChangedEvent event) {
+        StudentSnapshot before = event.before();
+        StudentSnapshot after = event.after();
+        if (before != null && after != null
+                && Objects.equals(before.facultyId(), after.facultyId()) && before.age() == after.age()) {
+            return;
+        }
+        apply(faculties -> {
+            if (before != null) {
+                remove(faculties, before.facultyId(), before.age());
+            }
+            if (after != null && after.facultyId() != null) {
+                faculties.computeIfAbsent(after.facultyId(), id -> new AgeHistogram()).add(after.age(), 1);
+            }
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStudentsMoved(StudentsMovedEvent event) {
+        apply(faculties -> {
+            AgeHistogram moved = faculties.remove(event.fromFacultyId());
+            if (moved != null && event.toFacultyId() != null) {
+                faculties.computeIfAbsent(event.toFacultyId(), id -> new AgeHistogram()).addAll(moved);
+            }
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStudentsDeleted(StudentsDeletedEvent event) {
+        apply(faculties -> {
+            for (StudentSnapshot student : event.students()) {
+                remove(faculties, student.facultyId(), student.age());
+            }
+        });
+    }
+
+    /**
+     * Applies the change to the current table; changes before the first reconciliation are in its snapshot.
+     */
+    private synchronized void apply(Consumer<NavigableMap<Long, AgeHistogram>> change) {
+        if (faculties != null) {
+            change.accept(faculties);
+        }
+    }
+
+    private static void remove(NavigableMap<Long, AgeHistogram> faculties, Long facultyId, int age) {
+        AgeHistogram histogram = facultyId != null ? faculties.get(facultyId) : null;
+        if (histogram != null && histogram.remove(age, 1)) {
+            faculties.remove(facultyId);
+        }
+    }
+
+    /**
+     * Student count per age of one faculty, with the running count and age sum.
+     */
+    private static final class AgeHistogram {
+        private final NavigableMap<Integer, Long> counts = new TreeMap<>();
+        private long count;
+        private long ageSum;
+
+        void add(int age, long students) {
+            counts.merge(age, students, Long::sum);
+            count += students;
+            ageSum += (long) age * students;
+        }
+
+        void addAll(AgeHistogram other) {
+            other.counts.forEach(this::add);
+        }
+
+        /**
+         * @return whether the faculty has no students left
+         */
+        boolean remove(int age, long students) {
+            Long current = counts.get(age);
+            if (current == null) {
+                return count == 0;
+            }
+            long removed = Math.min(current, students);
+            if (current == removed) {
+                counts.remove(age);
+            } else {
+                counts.put(age, current - removed);
+            }
+            count -= removed;
+            ageSum -= (long) age * removed;
+            return count == 0;
+        }
+
+        FacultyStats toStats(Long facultyId) {
+            return new FacultyStats(facultyId, count, (double) ageSum / count, counts.firstKey(), counts.lastKey());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof AgeHistogram other && counts.equals(other.counts);
+        }
+
+        @Override
+        public int hashCode() {
+            return counts.hashCode();
+        }
+    }
+}
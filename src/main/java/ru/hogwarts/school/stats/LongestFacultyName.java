@@ -0,0 +1,75 @@
+package ru.hogwarts.school.stats;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.hogwarts.school.event.FacultyChangedEvent;
+import ru.hogwarts.school.event.FacultySnapshot;
+import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.routing.RoutingContext;
+
+/**
+ * The longest faculty name (ties go to the lowest id), held in memory so that reads are constant time.
+ * Loaded with one indexed query once the application is ready and kept current from
+ * {@link FacultyChangedEvent}s; only losing the current holder (deleted or shortened) goes back to the database.
+ */
+@Component
+public class LongestFacultyName {
+    private static final Holder NONE = new Holder(null, "");
+
+    private final FacultyRepository facultyRepository;
+    private volatile Holder holder;
+
+    public LongestFacultyName(FacultyRepository facultyRepository) {
+        this.facultyRepository = facultyRepository;
+    }
+
+    public boolean isReady() {
+        return holder != null;
+    }
+
+    public String get() {
+        return holder.name();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void reload() {
+        holder = RoutingContext.onPrimary(facultyRepository::findLongestFaculty)
+                .map(row -> new Holder(row.getId(), row.getName()))
+                .orElse(NONE);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onFacultyChanged(FacultyChangedEvent event) {
+        Holder current = holder;
+        if (current == null) {
+            return;
+        }
+        FacultySnapshot before = event.before();
+        FacultySnapshot after = event.after();
+        boolean holderChanged = before != null && before.id().equals(current.id());
+        if (holderChanged && (after == null || length(after.name()) < length(current.name()))) {
+            reload();
+        } else if (after != null && (holderChanged || beats(after, current))) {
+            holder = new Holder(after.id(), after.name());
+        }
+    }
+
+    private static boolean beats(FacultySnapshot candidate, Holder current) {
+        int candidateLength = length(candidate.name());
+        int currentLength = length(current.name());
+        return candidateLength > currentLength
+                || candidateLength > 0 && candidateLength == currentLength && candidate.id() < current.id();
+    }
+
+    /**
+     * Length in characters, matching SQL {@code LENGTH} for names outside the Basic Multilingual Plane.
+     */
+    private static int length(String name) {
+        return name == null ? 0 : name.codePointCount(0, name.length());
+    }
+
+    private record Holder(Long id, String name) {
+    }
+}
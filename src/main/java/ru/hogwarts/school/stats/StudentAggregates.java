@@ -0,0 +1,91 @@
+package ru.hogwarts.school.stats;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.hogwarts.school.event.StudentChangedEvent;
+import ru.hogwarts.school.event.StudentSnapshot;
+import ru.hogwarts.school.event.StudentsDeletedEvent;
+import ru.hogwarts.school.repository.StudentAgeTotals;
+import ru.hogwarts.school.repository.StudentRepository;
+import ru.hogwarts.school.routing.RoutingContext;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Running student count and age sum, so that count and average age are answered without a table scan.
+ * Seeded once the application is ready, updated from {@link StudentChangedEvent}s and
+ * {@link StudentsDeletedEvent}s and periodically
+ * reconciled against the database to repair any drift (e.g. writes that raced with seeding).
+ * The read and the swap happen inside the {@link StudentCommitGate}, so a write is counted either by the
+ * fresh totals or by its event, never by both.
+ */
+@Component
+public class StudentAggregates {
+    private static final Logger logger = LoggerFactory.getLogger(StudentAggregates.class);
+
+    private final StudentRepository studentRepository;
+    private final StudentCommitGate commitGate;
+    private final AtomicReference<Totals> totals = new AtomicReference<>();
+
+    public StudentAggregates(StudentRepository studentRepository, StudentCommitGate commitGate) {
+        this.studentRepository = studentRepository;
+        this.commitGate = commitGate;
+    }
+
+    public boolean isReady() {
+        return totals.get() != null;
+    }
+
+    public int getCount() {
+        return (int) totals.get().count();
+    }
+
+    public Double getAverageAge() {
+        Totals current = totals.get();
+        return current.count() == 0 ? null : (double) current.ageSum() / current.count();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${school.aggregates.reconcile-interval:PT5M}",
+            fixedDelayString = "${school.aggregates.reconcile-interval:PT5M}")
+    public void reconcile() {
+        commitGate.runExclusively(() -> {
+            StudentAgeTotals loaded = RoutingContext.onPrimary(studentRepository::findAgeTotals);
+            Totals fresh = new Totals(loaded.getStudentCount(), loaded.getAgeSum());
+            Totals previous = totals.getAndSet(fresh);
+            if (previous != null && !previous.equals(fresh)) {
+                logger.warn("Student aggregates drifted from {} to {}, reconciled", previous, fresh);
+            }
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStudentChanged(StudentChangedEvent event) {
+        StudentSnapshot before = event.before();
+        StudentSnapshot after = event.after();
+        long countDelta = (after != null ? 1 : 0) - (before != null ? 1 : 0);
+        long ageDelta = (after != null ? after.age() : 0) - (before != null ? before.age() : 0);
+        apply(new Totals(countDelta, ageDelta));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStudentsDeleted(StudentsDeletedEvent event) {
+        long ageSum = event.students().stream().mapToLong(StudentSnapshot::age).sum();
+        apply(new Totals(-event.students().size(), -ageSum));
+    }
+
+    private void apply(Totals delta) {
+        totals.updateAndGet(current -> current == null ? null : current.plus(delta));
+    }
+
+    private record Totals(long count, long ageSum) {
+        Totals plus(Totals other) {
+            return new Totals(count + other.count, ageSum + other.ageSum);
+        }
+    }
+}
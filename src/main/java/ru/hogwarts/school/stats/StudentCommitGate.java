@@ -0,0 +1,84 @@
+package ru.hogwarts.school.stats;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.hogwarts.school.event.StudentChangedEvent;
+import ru.hogwarts.school.event.StudentsDeletedEvent;
+import ru.hogwarts.school.event.StudentsMovedEvent;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Keeps commits of student writes out of the window in which in-memory statistics re-read the database.
+ * A transaction that publishes a student event holds the gate shared from just before its commit until
+ * its after-commit listeners have run; a reconciliation holds it exclusively while it reads and swaps.
+ * Every write is therefore either in the snapshot, with its event already applied to the state being
+ * replaced, or committed after the swap, with its event applied to the fresh state, and never both.
+ * Student events published outside a transaction are not covered.
+ */
+@Component
+public class StudentCommitGate {
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @EventListener({StudentChangedEvent.class, StudentsMovedEvent.class, StudentsDeletedEvent.class})
+    public void onStudentWrite() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new CommitHold());
+    }
+
+    /**
+     * Runs {@code work} while no student write can commit.
+     */
+    public <T> T exclusively(Supplier<T> work) {
+        lock.writeLock().lock();
+        try {
+            return work.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void runExclusively(Runnable work) {
+        exclusively(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Ordered last, so it is released only after the {@code @TransactionalEventListener}s, which run in
+     * {@code afterCompletion} as well.
+     */
+    private final class CommitHold implements TransactionSynchronization {
+        private boolean held;
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            lock.readLock().lock();
+            held = true;
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(StudentCommitGate.this);
+            if (held) {
+                held = false;
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+    }
+}
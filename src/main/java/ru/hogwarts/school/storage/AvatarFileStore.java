@@ -0,0 +1,144 @@
+package ru.hogwarts.school.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+/**
+ * Avatar images on the local filesystem, addressed by the avatar's {@code filePath}
+ * relative to {@code school.avatar.dir}.
+ */
+@Component
+public class AvatarFileStore {
+    private final Path root;
+
+    public AvatarFileStore(@Value("${school.avatar.dir:avatars}") Path root) {
+        this.root = root.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Writes the image atomically and returns the file path to record on the avatar.
+     */
+    public String write(Long avatarId, String extension, byte[] data) {
+        return write(fileName(avatarId, extension), data);
+    }
+
+    /**
+     * Atomically replaces the named file in the store and returns its store-relative path.
+     */
+    public String write(String fileName, byte[] data) {
+        StagedFile staged = stage(fileName, data);
+        publish(staged);
+        return staged.fileName();
+    }
+
+    /**
+     * Writes the image to a temporary file in the store without making it visible; {@link #publish} moves it
+     * into place and {@link #discard} deletes it, so the file can follow the outcome of a transaction.
+     */
+    public StagedFile stage(Long avatarId, String extension, byte[] data) {
+        return stage(fileName(avatarId, extension), data);
+    }
+
+    /**
+     * Atomically replaces the staged file's target with it.
+     */
+    public void publish(StagedFile file) {
+        try {
+            Files.move(file.temp(), root.resolve(file.fileName()),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot store avatar file " + file.fileName(), e);
+        }
+    }
+
+    /**
+     * Deletes the staged file unless it has been published.
+     */
+    public void discard(StagedFile file) {
+        try {
+            Files.deleteIfExists(file.temp());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete staged avatar file " + file.temp(), e);
+        }
+    }
+
+    private StagedFile stage(String fileName, byte[] data) {
+        try {
+            Files.createDirectories(root);
+            Path temp = Files.createTempFile(root, fileName, ".tmp");
+            Files.write(temp, data);
+            return new StagedFile(fileName, temp);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot store avatar file " + fileName, e);
+        }
+    }
+
+    private static String fileName(Long avatarId, String extension) {
+        return avatarId + (extension.isEmpty() ? "" : "." + extension);
+    }
+
+    /**
+     * The stored file for the given path; empty for unknown files and paths outside the store.
+     */
+    public Optional<Path> resolve(String filePath) {
+        if (filePath == null || filePath.isEmpty()) {
+            return Optional.empty();
+        }
+        Path file = root.resolve(filePath).normalize();
+        if (!file.startsWith(root) || !Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        return Optional.of(file);
+    }
+
+    /**
+     * Deletes the stored file, if there is one; paths outside the store are ignored.
+     */
+    public void delete(String filePath) {
+        Optional<Path> file = resolve(filePath);
+        if (file.isEmpty()) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file.get());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete avatar file " + filePath, e);
+        }
+    }
+
+    /**
+     * Copies {@code length} bytes of the file with {@link FileChannel#transferTo}, which hands the
+     * copy to the kernel where the target channel allows it instead of staging it in heap buffers.
+     */
+    public void transfer(Path file, long length, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = 0;
+            while (position < length) {
+                long transferred = channel.transferTo(position, length - position, target);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+            }
+        }
+    }
+
+    /**
+     * An image written to {@code temp} and waiting to be published as {@code fileName}.
+     */
+    public record StagedFile(String fileName, Path temp) {
+    }
+}
@@ -0,0 +1,171 @@
+package ru.hogwarts.school.storage;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Renders downscaled PNG previews of avatar images into the {@link AvatarFileStore}.
+ * Work runs on a fixed pool behind a bounded queue; when the queue is full the job is dropped
+ * rather than blocking the upload, and the preview is rendered on first request instead.
+ */
+@Component
+public class AvatarPreviewGenerator implements MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(AvatarPreviewGenerator.class);
+    private static final String PREVIEW_MEDIA_TYPE = "image/png";
+
+    private final AvatarFileStore avatarFileStore;
+    private final List<Integer> sizes;
+    private final int queueCapacity;
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public AvatarPreviewGenerator(AvatarFileStore avatarFileStore,
+                                  @Value("${school.avatar.preview.sizes:64,128}") List<Integer> sizes,
+                                  @Value("${school.avatar.preview.threads:2}") int threads,
+                                  @Value("${school.avatar.preview.queue-capacity:100}") int queueCapacity) {
+        this.avatarFileStore = avatarFileStore;
+        this.sizes = List.copyOf(sizes);
+        this.queueCapacity = queueCapacity;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "avatar-preview-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public List<Integer> getSizes() {
+        return sizes;
+    }
+
+    public String getMediaType() {
+        return PREVIEW_MEDIA_TYPE;
+    }
+
+    /**
+     * Queues rendering of every configured size; returns false when the queue is full.
+     */
+    public boolean submit(Long avatarId, String filePath) {
+        try {
+            executor.execute(() -> sizes.forEach(size -> render(avatarId, filePath, size)));
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            logger.debug("Preview queue full, avatar {} will be rendered on demand", avatarId);
+            return false;
+        }
+    }
+
+    /**
+     * The stored preview, rendering it in the calling thread when it is not there yet.
+     */
+    public Optional<Path> findOrRender(Long avatarId, String filePath, int size) {
+        Optional<Path> preview = avatarFileStore.resolve(previewFileName(avatarId, size));
+        return preview.isPresent() ? preview : render(avatarId, filePath, size);
+    }
+
+    /**
+     * Deletes the stored previews of every configured size.
+     */
+    public void deletePreviews(Long avatarId) {
+        sizes.forEach(size -> avatarFileStore.delete(previewFileName(avatarId, size)));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new ExecutorServiceMetrics(executor, "avatar.preview", List.of()).bindTo(registry);
+        registry.more().counter("school.avatar.preview.rejected", List.of(), rejected, LongAdder::sum);
+        registry.more().counter("school.avatar.preview.failed", List.of(), failed, LongAdder::sum);
+    }
+
+    public PreviewStatistics getStatistics() {
+        long done = completed.sum();
+        return new PreviewStatistics(executor.getQueue().size(), queueCapacity, executor.getActiveCount(),
+                done, rejected.sum(), failed.sum(),
+                done > 0 ? totalNanos.sum() / (double) done / 1_000_000 : 0.0,
+                maxNanos.get() / 1_000_000.0);
+    }
+
+    Optional<Path> render(Long avatarId, String filePath, int size) {
+        Optional<Path> source = avatarFileStore.resolve(filePath);
+        if (source.isEmpty()) {
+            return Optional.empty();
+        }
+        long start = System.nanoTime();
+        try {
+            BufferedImage image = ImageIO.read(source.get().toFile());
+            if (image == null) {
+                failed.increment();
+                return Optional.empty();
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(scale(image, size), "png", out);
+            String preview = avatarFileStore.write(previewFileName(avatarId, size), out.toByteArray());
+            long elapsed = System.nanoTime() - start;
+            completed.increment();
+            totalNanos.add(elapsed);
+            maxNanos.accumulateAndGet(elapsed, Math::max);
+            return avatarFileStore.resolve(preview);
+        } catch (IOException | RuntimeException e) {
+            failed.increment();
+            logger.warn("Cannot render {}px preview of avatar {}", size, avatarId, e);
+            return Optional.empty();
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage image, int size) {
+        double ratio = Math.min(1.0, (double) size / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    private static String previewFileName(Long avatarId, int size) {
+        return avatarId + "-" + size + ".png";
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
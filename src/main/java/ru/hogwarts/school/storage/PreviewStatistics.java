@@ -0,0 +1,11 @@
+package ru.hogwarts.school.storage;
+
+public record PreviewStatistics(int queueDepth,
+                                int queueCapacity,
+                                int activeWorkers,
+                                long completed,
+                                long rejected,
+                                long failed,
+                                double averageMillis,
+                                double maxMillis) {
+}
@@ -0,0 +1,132 @@
+package ru.hogwarts.school.perf;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.hogwarts.school.SchoolApplication;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Boots the application on a private in-memory H2 database and seeds it with a synthetic dataset
+ * for benchmarks and load tests. Rows are inserted over JDBC once the context is refreshed but before
+ * {@code ApplicationReadyEvent}, so the in-memory indexes and aggregates are built from the seeded data.
+ */
+public final class PerfDataset {
+    public static final int STUDENTS_PER_FACULTY = 250;
+    public static final int STUDENTS_PER_AVATAR = 10;
+    public static final int MIN_AGE = 16;
+    public static final int AGE_SPAN = 10;
+
+    private static final int INSERT_BATCH_SIZE = 1000;
+    private static final int SEQUENCE_ALLOCATION_SIZE = 50;
+    private static final String[] COLORS = {"Red", "Green", "Yellow", "Blue", "Black", "White", "Silver", "Gold"};
+
+    private PerfDataset() {
+    }
+
+    /**
+     * Starts the application with {@code students} students, one faculty per {@value #STUDENTS_PER_FACULTY}
+     * students (at least four) and an avatar row for every {@value #STUDENTS_PER_AVATAR}th student.
+     * Entries of {@code properties} override the defaults below; all of them are passed as command-line
+     * arguments so they also take precedence over {@code application.properties}.
+     */
+    public static ConfigurableApplicationContext start(int students, WebApplicationType webApplicationType,
+                                                       Map<String, Object> properties) {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("spring.datasource.url", "jdbc:h2:mem:perf-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        settings.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        settings.put("spring.datasource.username", "sa");
+        settings.put("spring.datasource.password", "");
+        settings.put("spring.jpa.properties.hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        settings.put("spring.jpa.hibernate.ddl-auto", "create");
+        settings.put("spring.jpa.show-sql", "false");
+        settings.put("spring.jpa.properties.hibernate.generate_statistics", "false");
+        settings.put("spring.liquibase.enabled", "false");
+        settings.put("spring.sql.init.mode", "never");
+        settings.put("server.port", "0");
+        settings.put("spring.main.banner-mode", "off");
+        settings.put("logging.level.root", "WARN");
+        settings.put("logging.level.ru.hogwarts.school", "WARN");
+        settings.put("logging.level.org.hibernate.SQL", "WARN");
+        settings.put("logging.level.org.hibernate.type.descriptor.sql.BasicBinder", "WARN");
+        settings.put("logging.level.org.springframework.web", "WARN");
+        settings.put("school.avatar.dir", "target/perf-avatars");
+        settings.putAll(properties);
+
+        return new SpringApplicationBuilder(SchoolApplication.class)
+                .web(webApplicationType)
+                .listeners(new Seeder(students))
+                .run(settings.entrySet().stream()
+                        .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                        .toArray(String[]::new));
+    }
+
+    public static int facultyCount(int students) {
+        return Math.max(4, students / STUDENTS_PER_FACULTY);
+    }
+
+    public static int avatarCount(int students) {
+        return students / STUDENTS_PER_AVATAR;
+    }
+
+    private record Seeder(int students) implements ApplicationListener<ApplicationEvent> {
+
+        @Override
+        public void onApplicationEvent(ApplicationEvent event) {
+            if (event instanceof ApplicationStartedEvent started) {
+                seed(started.getApplicationContext().getBean(JdbcTemplate.class));
+            }
+        }
+
+        private void seed(JdbcTemplate jdbcTemplate) {
+            Timestamp now = Timestamp.from(Instant.now());
+            int faculties = facultyCount(students);
+
+            insert(jdbcTemplate, "INSERT INTO faculty (id, name, color, version, last_modified) VALUES (?, ?, ?, 0, ?)",
+                    faculties, i -> new Object[]{(long) i, "Faculty " + i, COLORS[i % COLORS.length], now});
+            insert(jdbcTemplate, "INSERT INTO student (id, name, age, faculty_id, version, last_modified) " +
+                            "VALUES (?, ?, ?, ?, 0, ?)",
+                    students, i -> new Object[]{(long) i, "Student " + i, MIN_AGE + i % AGE_SPAN,
+                            (long) (i % faculties + 1), now});
+            insert(jdbcTemplate, "INSERT INTO avatar (file_path, file_size, media_type, student_id, version, " +
+                            "last_modified) VALUES (?, 1024, 'image/png', ?, 0, ?)",
+                    avatarCount(students), i -> new Object[]{i + ".png", (long) i * STUDENTS_PER_AVATAR, now});
+
+            // One allocation past the seeded ids, so both the pooled and the pooled-lo optimizer stay clear of them
+            jdbcTemplate.execute("ALTER SEQUENCE faculty_seq RESTART WITH "
+                    + (faculties + SEQUENCE_ALLOCATION_SIZE + 1));
+            jdbcTemplate.execute("ALTER SEQUENCE student_seq RESTART WITH "
+                    + (students + SEQUENCE_ALLOCATION_SIZE + 1));
+        }
+
+        /**
+         * Inserts rows {@code 1..count} in JDBC batches.
+         */
+        private static void insert(JdbcTemplate jdbcTemplate, String sql, int count, RowFactory rows) {
+            List<Object[]> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+            for (int i = 1; i <= count; i++) {
+                batch.add(rows.row(i));
+                if (batch.size() == INSERT_BATCH_SIZE || i == count) {
+                    jdbcTemplate.batchUpdate(sql, batch);
+                    batch.clear();
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowFactory {
+        Object[] row(int i);
+    }
+}
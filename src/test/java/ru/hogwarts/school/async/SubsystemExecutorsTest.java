@@ -0,0 +1,83 @@
+package ru.hogwarts.school.async;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SubsystemExecutorsTest {
+
+    @Test
+    void supply_shouldRunInlineWhenDisabled() {
+        // given
+        SubsystemExecutors executors = new SubsystemExecutors(false, new MockEnvironment());
+
+        // when
+        CompletableFuture<String> result = executors.supply(Subsystem.STUDENT, () -> Thread.currentThread().getName());
+
+        // then
+        assertTrue(result.isDone());
+        assertEquals(Thread.currentThread().getName(), result.join());
+        assertTrue(executors.getStatistics().isEmpty());
+    }
+
+    @Test
+    void supply_shouldRejectWhenQueueIsFullAndKeepOtherSubsystemsAvailable() throws Exception {
+        // given
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("school.async.avatar.threads", "1")
+                .withProperty("school.async.avatar.queue-capacity", "1");
+        SubsystemExecutors executors = new SubsystemExecutors(true, environment);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> running = executors.supply(Subsystem.AVATAR, () -> await(release));
+        CompletableFuture<Boolean> queued = executors.supply(Subsystem.AVATAR, () -> await(release));
+
+        // when & then
+        assertThrows(RejectedExecutionException.class, () -> executors.supply(Subsystem.AVATAR, () -> true));
+        assertEquals("faculty-async-1",
+                executors.supply(Subsystem.FACULTY, () -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS));
+
+        ExecutorStatistics avatar = executors.getStatistics().stream()
+                .filter(statistics -> statistics.subsystem() == Subsystem.AVATAR)
+                .findFirst().orElseThrow();
+        assertEquals(1, avatar.rejected());
+        assertEquals(1, avatar.queueDepth());
+        assertEquals(1.0, avatar.saturation());
+
+        release.countDown();
+        assertTrue(running.get(5, TimeUnit.SECONDS));
+        assertTrue(queued.get(5, TimeUnit.SECONDS));
+        executors.shutdown();
+    }
+
+    @Test
+    void bindTo_shouldPublishExecutorMetersPerSubsystem() {
+        // given
+        SubsystemExecutors executors = new SubsystemExecutors(true, new MockEnvironment());
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+        // when
+        executors.bindTo(registry);
+        executors.supply(Subsystem.FACULTY, () -> 1).join();
+
+        // then
+        assertNotNull(registry.find("executor.queued").tag("subsystem", "faculty").gauge());
+        assertEquals(0.0, registry.get("school.async.rejected").tag("subsystem", "avatar").functionCounter().count());
+        executors.shutdown();
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
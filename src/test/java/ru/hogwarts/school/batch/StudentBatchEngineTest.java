@@ -0,0 +1,83 @@
+package ru.hogwarts.school.batch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.hogwarts.school.dto.StudentDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StudentBatchEngineTest {
+
+    private final StudentBatchEngine engine = new StudentBatchEngine(4, 10);
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void run_shouldMergeResultsInReadOrderWhenOrdered() {
+        // given
+        List<Long> results = new ArrayList<>();
+
+        // when
+        BatchReport report = engine.run("ids", students(95), StudentDto::id,
+                WorkerPool.FORK_JOIN, MergeOrder.ORDERED, results::add);
+
+        // then
+        assertEquals(LongStream.rangeClosed(1, 95).boxed().toList(), results);
+        assertEquals(95, report.students());
+        assertEquals(10, report.chunks());
+        assertEquals(95, report.workers().stream().mapToLong(WorkerTiming::students).sum());
+        assertTrue(report.workers().stream().allMatch(worker -> worker.worker().startsWith("student-batch-fj-")));
+        assertSame(report, engine.getLastReport().orElseThrow());
+    }
+
+    @Test
+    void run_shouldDeliverEveryResultWhenUnorderedAndSkipNulls() {
+        // given
+        List<Long> results = new ArrayList<>();
+
+        // when
+        BatchReport report = engine.run("even", students(100),
+                student -> student.id() % 2 == 0 ? student.id() : null,
+                WorkerPool.FIXED, MergeOrder.UNORDERED, results::add);
+
+        // then
+        assertEquals(50, results.size());
+        assertEquals(LongStream.rangeClosed(1, 50).map(i -> i * 2).boxed().toList(),
+                results.stream().sorted().toList());
+        assertEquals(100, report.students());
+        assertEquals(WorkerPool.FIXED, report.pool());
+    }
+
+    @Test
+    void run_shouldRethrowTaskFailureAndCloseStream() {
+        // given
+        AtomicBoolean closed = new AtomicBoolean();
+        Stream<StudentDto> students = students(30).onClose(() -> closed.set(true));
+
+        // when & then
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> engine.run("failing", students,
+                student -> {
+                    if (student.id() == 15) {
+                        throw new IllegalArgumentException("boom");
+                    }
+                    return student.id();
+                }, WorkerPool.FIXED, MergeOrder.ORDERED, result -> {
+                }));
+        assertInstanceOf(IllegalArgumentException.class, e.getCause());
+        assertTrue(closed.get());
+        assertTrue(engine.getLastReport().isEmpty());
+    }
+
+    private static Stream<StudentDto> students(int count) {
+        return LongStream.rangeClosed(1, count).mapToObj(id -> new StudentDto(id, "Студент " + id, 17, null));
+    }
+}
@@ -0,0 +1,96 @@
+package ru.hogwarts.school.cache;
+
+import org.junit.jupiter.api.Test;
+import ru.hogwarts.school.event.FacultyChangedEvent;
+import ru.hogwarts.school.event.FacultySnapshot;
+import ru.hogwarts.school.event.StudentChangedEvent;
+import ru.hogwarts.school.event.StudentSnapshot;
+import ru.hogwarts.school.event.StudentsDeletedEvent;
+import ru.hogwarts.school.event.StudentsMovedEvent;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.routing.RoutingContext;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StudentCacheTest {
+
+    private final StudentCache studentCache = new StudentCache(100, Duration.ofMinutes(1));
+
+    private final Faculty gryffindor = new Faculty(1L, "Гриффиндор", "Красный");
+    private final Faculty slytherin = new Faculty(2L, "Слизерин", "Зелёный");
+
+    @Test
+    void onFacultyChanged_shouldEvictStudentsOfRenamedFaculty() {
+        // given
+        studentCache.put(new Student(1L, "Гарри Поттер", 17, gryffindor));
+        studentCache.put(new Student(2L, "Драко Малфой", 17, slytherin));
+        studentCache.put(new Student(3L, "Луна Лавгуд", 16));
+
+        // when
+        studentCache.onFacultyChanged(new FacultyChangedEvent(
+                new FacultySnapshot(1L, "Гриффиндор", "Красный"), new FacultySnapshot(1L, "Гриффиндор", "Алый")));
+
+        // then
+        assertTrue(studentCache.peek(1L).isEmpty());
+        assertTrue(studentCache.peek(2L).isPresent());
+        assertTrue(studentCache.peek(3L).isPresent());
+    }
+
+    @Test
+    void get_shouldLoadMissesFromPrimary() {
+        // when
+        Optional<Student> loaded = studentCache.get(1L, id -> Optional.of(
+                new Student(id, RoutingContext.isPinnedToPrimary() ? "primary" : "replica", 17)));
+
+        // then
+        assertEquals("primary", loaded.orElseThrow().getName());
+        assertFalse(RoutingContext.isPinnedToPrimary());
+    }
+
+    @Test
+    void onStudentChanged_shouldEvictStudentCachedBeforeCommit() {
+        // given
+        studentCache.put(new Student(1L, "Гарри Поттер", 17, gryffindor));
+
+        // when
+        studentCache.onStudentChanged(new StudentChangedEvent(
+                new StudentSnapshot(1L, "Гарри Поттер", 17, 1L), new StudentSnapshot(1L, "Гарри Поттер", 18, 1L)));
+
+        // then
+        assertTrue(studentCache.peek(1L).isEmpty());
+    }
+
+    @Test
+    void onStudentsMoved_shouldEvictStudentsOfSourceFacultyCachedBeforeCommit() {
+        // given
+        studentCache.put(new Student(1L, "Гарри Поттер", 17, gryffindor));
+        studentCache.put(new Student(2L, "Драко Малфой", 17, slytherin));
+
+        // when
+        studentCache.onStudentsMoved(new StudentsMovedEvent(1L, 2L, 1));
+
+        // then
+        assertTrue(studentCache.peek(1L).isEmpty());
+        assertTrue(studentCache.peek(2L).isPresent());
+    }
+
+    @Test
+    void onStudentsDeleted_shouldEvictStudentsOfFacultyCachedBeforeCommit() {
+        // given
+        studentCache.put(new Student(1L, "Гарри Поттер", 17, gryffindor));
+        studentCache.put(new Student(2L, "Драко Малфой", 17, slytherin));
+
+        // when
+        studentCache.onStudentsDeleted(new StudentsDeletedEvent(1L,
+                List.of(new StudentSnapshot(1L, "Гарри Поттер", 17, 1L))));
+
+        // then
+        assertTrue(studentCache.peek(1L).isEmpty());
+        assertTrue(studentCache.peek(2L).isPresent());
+    }
+}
@@ -0,0 +1,80 @@
+package ru.hogwarts.school.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.hogwarts.school.dto.FacultyDto;
+import ru.hogwarts.school.event.FacultyChangedEvent;
+import ru.hogwarts.school.event.FacultySnapshot;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.repository.FacultyRepository;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FacultyLookupIndexTest {
+
+    @Mock
+    private FacultyRepository facultyRepository;
+
+    @InjectMocks
+    private FacultyLookupIndex facultyLookupIndex;
+
+    @Test
+    void build_shouldMatchNameAndColorIgnoringCase() {
+        // given
+        build();
+
+        // when & then
+        assertTrue(facultyLookupIndex.isReady());
+        assertEquals(List.of(1L, 4L), facultyLookupIndex.idsByColor("RED"));
+        assertEquals(List.of(2L), facultyLookupIndex.idsByNameOrColor("слизерин"));
+        assertEquals(List.of(3L), facultyLookupIndex.idsByNameOrColor("blue"));
+        assertTrue(facultyLookupIndex.idsByNameOrColor("violet").isEmpty());
+    }
+
+    @Test
+    void completeName_shouldReturnPrefixMatchesOrderedByName() {
+        // given
+        build();
+
+        // when
+        List<FacultySnapshot> result = facultyLookupIndex.completeName("гр", 10);
+
+        // then
+        assertEquals(List.of("Гриффиндор", "Гриффиндор-2"), result.stream().map(FacultySnapshot::name).toList());
+        assertEquals(1, facultyLookupIndex.completeName("Г", 1).size());
+    }
+
+    @Test
+    void onFacultyChanged_shouldPublishNewSnapshot() {
+        // given
+        build();
+
+        // when
+        facultyLookupIndex.onFacultyChanged(FacultyChangedEvent.updated(
+                new FacultySnapshot(4L, "Гриффиндор-2", "Red"), new Faculty(4L, "Гриффиндор-2", "Gold")));
+        facultyLookupIndex.onFacultyChanged(FacultyChangedEvent.deleted(new Faculty(2L, "Слизерин", "Green")));
+
+        // then
+        assertEquals(List.of(1L), facultyLookupIndex.idsByColor("red"));
+        assertEquals(List.of(4L), facultyLookupIndex.idsByColor("gold"));
+        assertTrue(facultyLookupIndex.idsByNameOrColor("Слизерин").isEmpty());
+        assertEquals(3, facultyLookupIndex.size());
+    }
+
+    private void build() {
+        when(facultyRepository.streamAllAsDto()).thenReturn(Stream.of(
+                new FacultyDto(1L, "Гриффиндор", "Red"),
+                new FacultyDto(2L, "Слизерин", "Green"),
+                new FacultyDto(3L, "Когтевран", "Blue"),
+                new FacultyDto(4L, "Гриффиндор-2", "red")));
+        facultyLookupIndex.build();
+    }
+}
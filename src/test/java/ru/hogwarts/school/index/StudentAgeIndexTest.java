@@ -0,0 +1,126 @@
+package ru.hogwarts.school.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.hogwarts.school.event.StudentChangedEvent;
+import ru.hogwarts.school.event.StudentSnapshot;
+import ru.hogwarts.school.event.StudentsDeletedEvent;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.StudentIdAge;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StudentAgeIndexTest {
+
+    @Mock
+    private StudentRepository studentRepository;
+
+    @InjectMocks
+    private StudentAgeIndex studentAgeIndex;
+
+    @Test
+    void build_shouldIndexEveryStudentAndBecomeReady() {
+        // given
+        when(studentRepository.streamAllIdsAndAges()).thenReturn(Stream.of(
+                row(3L, 17), row(1L, 17), row(2L, 16), row(4L, 18)));
+
+        // when
+        studentAgeIndex.build();
+
+        // then
+        assertTrue(studentAgeIndex.isReady());
+        assertEquals(4, studentAgeIndex.size());
+        assertArrayEquals(new long[]{1L, 3L}, studentAgeIndex.idsBetween(17, 17));
+        assertArrayEquals(new long[]{1L, 2L, 3L}, studentAgeIndex.idsBetween(16, 17));
+    }
+
+    @Test
+    void onStudentChanged_shouldMoveStudentBetweenBuckets() {
+        // given
+        Student student = new Student(1L, "Луна Лавгуд", 16);
+        studentAgeIndex.onStudentChanged(StudentChangedEvent.created(student));
+
+        // when
+        studentAgeIndex.onStudentChanged(StudentChangedEvent.updated(StudentSnapshot.of(student),
+                new Student(1L, "Луна Лавгуд", 17)));
+
+        // then
+        assertEquals(0, studentAgeIndex.idsBetween(16, 16).length);
+        assertArrayEquals(new long[]{1L}, studentAgeIndex.idsBetween(17, 17));
+
+        // when
+        studentAgeIndex.onStudentChanged(StudentChangedEvent.deleted(new Student(1L, "Луна Лавгуд", 17)));
+
+        // then
+        assertEquals(0, studentAgeIndex.size());
+    }
+
+    @Test
+    void onStudentsDeleted_shouldRemoveDeletedIdsFromEveryBucket() {
+        // given
+        for (long id = 1; id <= 10; id++) {
+            studentAgeIndex.add(16 + (int) (id % 3), id);
+        }
+
+        // when
+        studentAgeIndex.onStudentsDeleted(new StudentsDeletedEvent(1L, List.of(
+                new StudentSnapshot(9L, "Драко Малфой", 16, 1L),
+                new StudentSnapshot(2L, "Гермиона Грейнджер", 18, 1L),
+                new StudentSnapshot(4L, "Рон Уизли", 17, 1L))));
+
+        // then
+        assertEquals(7, studentAgeIndex.size());
+        assertArrayEquals(new long[]{1L, 3L, 5L, 6L, 7L, 8L, 10L}, studentAgeIndex.idsBetween(16, 18));
+    }
+
+    @Test
+    void add_shouldGrowBucketsAndIgnoreDuplicates() {
+        // when
+        for (long id = 100; id > 0; id--) {
+            studentAgeIndex.add(20, id);
+        }
+        studentAgeIndex.add(20, 50);
+
+        // then
+        long[] ids = studentAgeIndex.idsBetween(20, 20);
+        assertEquals(100, ids.length);
+        assertEquals(1L, ids[0]);
+        assertEquals(100L, ids[99]);
+    }
+
+    @Test
+    void add_shouldDisableIndexForAgeOutsideDomain() {
+        // given
+        when(studentRepository.streamAllIdsAndAges()).thenReturn(Stream.of(row(1L, 17)));
+        studentAgeIndex.build();
+
+        // when
+        studentAgeIndex.add(StudentAgeIndex.MAX_AGE + 1, 2L);
+
+        // then
+        assertFalse(studentAgeIndex.isReady());
+    }
+
+    private static StudentIdAge row(long id, int age) {
+        return new StudentIdAge() {
+            @Override
+            public long getId() {
+                return id;
+            }
+
+            @Override
+            public int getAge() {
+                return age;
+            }
+        };
+    }
+}
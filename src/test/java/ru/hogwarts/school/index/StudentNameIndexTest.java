@@ -0,0 +1,153 @@
+package ru.hogwarts.school.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.hogwarts.school.event.StudentChangedEvent;
+import ru.hogwarts.school.event.StudentRenamedEvent;
+import ru.hogwarts.school.event.StudentSnapshot;
+import ru.hogwarts.school.event.StudentsDeletedEvent;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.StudentIdName;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StudentNameIndexTest {
+
+    @Mock
+    private StudentRepository studentRepository;
+
+    @InjectMocks
+    private StudentNameIndex studentNameIndex;
+
+    @Test
+    void search_shouldMatchSubstringsIgnoringCaseAndRankThem() {
+        // given
+        build();
+
+        // when
+        StudentNameIndex.SearchResult result = studentNameIndex.search("ГЕР", 0, 10);
+
+        // then
+        assertEquals(3, result.total());
+        assertArrayEquals(new long[]{4L, 2L, 5L}, result.ids());
+    }
+
+    @Test
+    void search_shouldReadPostingsOfQueriesShorterThanTrigram() {
+        // given
+        build();
+
+        // when
+        StudentNameIndex.SearchResult result = studentNameIndex.search("о", 0, 10);
+
+        // then
+        assertEquals(3, result.total());
+        assertArrayEquals(new long[]{3L, 1L, 2L}, result.ids());
+    }
+
+    @Test
+    void search_shouldReturnRequestedPageAndTotal() {
+        // given
+        build();
+
+        // when
+        StudentNameIndex.SearchResult result = studentNameIndex.search("ер", 1, 1);
+
+        // then
+        assertEquals(4, result.total());
+        assertArrayEquals(new long[]{5L}, result.ids());
+    }
+
+    @Test
+    void onStudentChanged_shouldReindexRenamedAndDeletedStudents() {
+        // given
+        build();
+
+        // when
+        studentNameIndex.onStudentChanged(StudentChangedEvent.updated(
+                new StudentSnapshot(1L, "Гарри Поттер", 17, null), new Student(1L, "Гарри Джеймс Поттер", 17)));
+        studentNameIndex.onStudentChanged(StudentChangedEvent.deleted(new Student(3L, "Рон Уизли", 17)));
+
+        // then
+        assertArrayEquals(new long[]{1L}, studentNameIndex.search("джеймс", 0, 10).ids());
+        assertArrayEquals(new long[]{1L}, studentNameIndex.search("йм", 0, 10).ids());
+        assertEquals(0, studentNameIndex.search("уизли", 0, 10).total());
+        assertEquals(0, studentNameIndex.search("з", 0, 10).total());
+        assertEquals(4, studentNameIndex.size());
+    }
+
+    @Test
+    void onStudentRenamed_shouldReindexName() {
+        // given
+        build();
+
+        // when
+        studentNameIndex.onStudentRenamed(new StudentRenamedEvent(3L, "Рональд Уизли"));
+
+        // then
+        assertArrayEquals(new long[]{3L}, studentNameIndex.search("рональд", 0, 10).ids());
+        assertEquals(0, studentNameIndex.search("рон уизли", 0, 10).total());
+        assertEquals(5, studentNameIndex.size());
+    }
+
+    @Test
+    void onStudentsDeleted_shouldDropEveryDeletedStudentFromNamesAndPostings() {
+        // given
+        build();
+
+        // when
+        studentNameIndex.onStudentsDeleted(new StudentsDeletedEvent(1L, List.of(
+                new StudentSnapshot(4L, "Гер", 17, 1L),
+                new StudentSnapshot(2L, "Гермиона Грейнджер", 17, 1L))));
+
+        // then
+        assertArrayEquals(new long[]{5L}, studentNameIndex.search("гер", 0, 10).ids());
+        assertArrayEquals(new long[]{5L}, studentNameIndex.search("ге", 0, 10).ids());
+        assertEquals(3, studentNameIndex.size());
+    }
+
+    @Test
+    void grams_shouldNotCollideAcrossLengths() {
+        // when
+        long[] grams = StudentNameIndex.grams("аа");
+
+        // then
+        assertEquals(2, grams.length);
+        assertArrayEquals(StudentNameIndex.queryGrams("а"), new long[]{grams[0]});
+        assertArrayEquals(StudentNameIndex.queryGrams("аа"), new long[]{grams[1]});
+    }
+
+    private void build() {
+        when(studentRepository.streamAllIdsAndNames()).thenReturn(Stream.of(
+                row(1L, "Гарри Поттер"),
+                row(2L, "Гермиона Грейнджер"),
+                row(3L, "Рон Уизли"),
+                row(4L, "Гер"),
+                row(5L, "Ангерман")));
+        studentNameIndex.build();
+        assertTrue(studentNameIndex.isReady());
+    }
+
+    private static StudentIdName row(long id, String name) {
+        return new StudentIdName() {
+            @Override
+            public long getId() {
+                return id;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+        };
+    }
+}
@@ -5,12 +5,28 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.hogwarts.school.async.SubsystemExecutors;
+import ru.hogwarts.school.cache.RegionStatistics;
 import ru.hogwarts.school.controller.FacultyController;
+import ru.hogwarts.school.dto.BatchResult;
+import ru.hogwarts.school.dto.FacultyPatch;
+import ru.hogwarts.school.dto.FacultyStats;
+import ru.hogwarts.school.dto.PatchResult;
+import ru.hogwarts.school.dto.StudentDto;
+import ru.hogwarts.school.dto.VersionStamp;
 import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.service.ExportService;
+import ru.hogwarts.school.service.FacultyDeleteMode;
 import ru.hogwarts.school.service.FacultyService;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,6 +36,7 @@ import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+@Import(SubsystemExecutors.class)
 @WebMvcTest(FacultyController.class)
 class FacultyControllerWebMvcTest {
 
@@ -32,6 +49,9 @@ class FacultyControllerWebMvcTest {
     @MockBean
     private FacultyService facultyService;
 
+    @MockBean
+    private ExportService exportService;
+
     private final Faculty testFaculty = new Faculty(1L, "Gryffindor", "Red");
 
     @Test
@@ -66,6 +86,34 @@ class FacultyControllerWebMvcTest {
         verify(facultyService, times(1)).findFaculty(1L);
     }
 
+    @Test
+    void getFaculty_shouldSendValidatorsFromVersionStamp() throws Exception {
+        // given
+        when(facultyService.findFacultyVersion(1L))
+                .thenReturn(Optional.of(new VersionStamp(4L, Instant.parse("2024-09-01T10:00:00Z"))));
+        when(facultyService.findFaculty(1L)).thenReturn(Optional.of(testFaculty));
+
+        // when & then
+        mockMvc.perform(get("/faculty/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""))
+                .andExpect(header().string("Last-Modified", "Sun, 01 Sep 2024 10:00:00 GMT"));
+    }
+
+    @Test
+    void getFaculty_shouldReturnNotModifiedWithoutLoadingFaculty() throws Exception {
+        // given
+        when(facultyService.findFacultyVersion(1L))
+                .thenReturn(Optional.of(new VersionStamp(4L, Instant.parse("2024-09-01T10:00:00Z"))));
+
+        // when & then
+        mockMvc.perform(get("/faculty/1").header("If-None-Match", "\"4\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        verify(facultyService, never()).findFaculty(any());
+    }
+
     @Test
     void getFaculty_shouldReturnNotFoundWhenNotExists() throws Exception {
         // given
@@ -111,25 +159,71 @@ class FacultyControllerWebMvcTest {
     @Test
     void deleteFaculty_shouldReturnOkWhenExists() throws Exception {
         // given
-        when(facultyService.deleteFaculty(1L)).thenReturn(true);
+        when(facultyService.deleteFaculty(1L, FacultyDeleteMode.CASCADE, null)).thenReturn(true);
 
         // when & then
         mockMvc.perform(delete("/faculty/1"))
                 .andExpect(status().isOk());
 
-        verify(facultyService, times(1)).deleteFaculty(1L);
+        verify(facultyService, times(1)).deleteFaculty(1L, FacultyDeleteMode.CASCADE, null);
     }
 
     @Test
     void deleteFaculty_shouldReturnNotFoundWhenNotExists() throws Exception {
         // given
-        when(facultyService.deleteFaculty(999L)).thenReturn(false);
+        when(facultyService.deleteFaculty(999L, FacultyDeleteMode.CASCADE, null)).thenReturn(false);
 
         // when & then
         mockMvc.perform(delete("/faculty/999"))
                 .andExpect(status().isNotFound());
 
-        verify(facultyService, times(1)).deleteFaculty(999L);
+        verify(facultyService, times(1)).deleteFaculty(999L, FacultyDeleteMode.CASCADE, null);
+    }
+
+    @Test
+    void deleteFaculty_shouldPassStudentModeAndTarget() throws Exception {
+        // given
+        when(facultyService.deleteFaculty(1L, FacultyDeleteMode.REASSIGN, 2L)).thenReturn(true);
+
+        // when & then
+        mockMvc.perform(delete("/faculty/1").param("students", "REASSIGN").param("moveTo", "2"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void moveStudents_shouldReturnMovedCount() throws Exception {
+        // given
+        when(facultyService.moveStudents(1L, 2L)).thenReturn(Optional.of(3));
+
+        // when & then
+        mockMvc.perform(post("/faculty/1/move-students/2"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("3"));
+    }
+
+    @Test
+    void moveStudents_shouldReturnNotFoundForMissingFaculty() throws Exception {
+        // given
+        when(facultyService.moveStudents(1L, 9L)).thenReturn(Optional.empty());
+
+        // when & then
+        mockMvc.perform(post("/faculty/1/move-students/9"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getFacultyStats_shouldReturnStatsPerFaculty() throws Exception {
+        // given
+        when(facultyService.getFacultyStats()).thenReturn(List.of(new FacultyStats(1L, 3L, 17.5, 16, 19)));
+
+        // when & then
+        performAsync(get("/faculty/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].facultyId").value(1))
+                .andExpect(jsonPath("$[0].studentCount").value(3))
+                .andExpect(jsonPath("$[0].averageAge").value(17.5))
+                .andExpect(jsonPath("$[0].minAge").value(16))
+                .andExpect(jsonPath("$[0].maxAge").value(19));
     }
 
     @Test
@@ -138,7 +232,7 @@ class FacultyControllerWebMvcTest {
         when(facultyService.getFacultiesByColor("Red")).thenReturn(List.of(testFaculty));
 
         // when & then
-        mockMvc.perform(get("/faculty/filter/Red"))
+        performAsync(get("/faculty/filter/Red"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$[0].name").value("Gryffindor"))
                 .andExpect(jsonPath("$[0].color").value("Red"));
@@ -152,7 +246,7 @@ class FacultyControllerWebMvcTest {
         when(facultyService.getFacultiesByNameOrColor("gryffindor")).thenReturn(List.of(testFaculty));
 
         // when & then
-        mockMvc.perform(get("/faculty/search")
+        performAsync(get("/faculty/search")
                         .param("search", "gryffindor"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$[0].name").value("Gryffindor"));
@@ -166,7 +260,7 @@ class FacultyControllerWebMvcTest {
         when(facultyService.getFacultiesByNameOrColor("hufflepuff")).thenReturn(List.of());
 
         // when & then
-        mockMvc.perform(get("/faculty/search")
+        performAsync(get("/faculty/search")
                         .param("search", "hufflepuff"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$").isArray())
@@ -178,24 +272,115 @@ class FacultyControllerWebMvcTest {
     @Test
     void getFacultyStudents_shouldReturnStudentsList() throws Exception {
         // given
-        when(facultyService.findFaculty(1L)).thenReturn(Optional.of(testFaculty));
+        when(facultyService.getFacultyStudents(1L))
+                .thenReturn(Optional.of(List.of(new StudentDto(1L, "Гарри Поттер", 17, 1L))));
 
         // when & then
-        mockMvc.perform(get("/faculty/1/students"))
-                .andExpect(status().isOk());
+        performAsync(get("/faculty/1/students"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Гарри Поттер"))
+                .andExpect(jsonPath("$[0].facultyId").value(1));
 
-        verify(facultyService, times(1)).findFaculty(1L);
+        verify(facultyService, times(1)).getFacultyStudents(1L);
     }
 
     @Test
     void getFacultyStudents_shouldReturnNotFoundWhenFacultyNotExists() throws Exception {
         // given
-        when(facultyService.findFaculty(999L)).thenReturn(Optional.empty());
+        when(facultyService.getFacultyStudents(999L)).thenReturn(Optional.empty());
 
         // when & then
-        mockMvc.perform(get("/faculty/999/students"))
+        performAsync(get("/faculty/999/students"))
                 .andExpect(status().isNotFound());
 
-        verify(facultyService, times(1)).findFaculty(999L);
+        verify(facultyService, times(1)).getFacultyStudents(999L);
+    }
+
+    @Test
+    void getCacheStatistics_shouldReturnRegionStatistics() throws Exception {
+        // given
+        when(facultyService.getCacheStatistics())
+                .thenReturn(List.of(new RegionStatistics("faculty", 12, 3, 3, 3)));
+
+        // when & then
+        mockMvc.perform(get("/faculty/cache/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].region").value("faculty"))
+                .andExpect(jsonPath("$[0].hits").value(12))
+                .andExpect(jsonPath("$[0].misses").value(3));
+    }
+
+    @Test
+    void getFacultiesByIds_shouldReturnFoundFacultiesAndMissingIds() throws Exception {
+        // given
+        when(facultyService.findFaculties(List.of(1L, 5L)))
+                .thenReturn(new BatchResult<>(List.of(new Faculty(1L, "Gryffindor", "Red")), List.of(5L)));
+
+        // when & then
+        performAsync(get("/faculty/batch").param("ids", "1", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].name").value("Gryffindor"))
+                .andExpect(jsonPath("$.missingIds[0]").value(5));
+    }
+
+    @Test
+    void getFacultiesByIds_shouldReturnBadRequestForTooManyIds() throws Exception {
+        // given
+        when(facultyService.findFaculties(any())).thenThrow(new IllegalArgumentException("At most 500 ids"));
+
+        // when & then
+        mockMvc.perform(get("/faculty/batch").param("ids", "1"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void patchFaculty_shouldReturnNewVersionAsETag() throws Exception {
+        // given
+        when(facultyService.patchFaculty(1L, 0L, new FacultyPatch(null, "Scarlet")))
+                .thenReturn(PatchResult.updated(1L));
+
+        // when & then
+        mockMvc.perform(patch("/faculty/1").header("If-Match", "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"color\":\"Scarlet\"}"))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string("ETag", "\"1\""));
+    }
+
+    @Test
+    void patchFaculty_shouldReturnNotFoundForMissingFaculty() throws Exception {
+        // given
+        when(facultyService.patchFaculty(eq(9L), eq(0L), any())).thenReturn(PatchResult.notFound());
+
+        // when & then
+        mockMvc.perform(patch("/faculty/9").header("If-Match", "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"color\":\"Scarlet\"}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void patchFaculty_shouldReturnConflictForTakenNameAndColor() throws Exception {
+        // given
+        when(facultyService.patchFaculty(eq(1L), eq(0L), any()))
+                .thenThrow(new DuplicateKeyException("A faculty with this name and color already exists"));
+
+        // when & then
+        mockMvc.perform(patch("/faculty/1").header("If-Match", "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"Slytherin\",\"color\":\"Green\"}"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void patchFaculty_shouldRejectWeakIfMatch() throws Exception {
+        // when & then
+        mockMvc.perform(patch("/faculty/1").header("If-Match", "W/\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"color\":\"Scarlet\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private ResultActions performAsync(MockHttpServletRequestBuilder builder) throws Exception {
+        MvcResult started = mockMvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started));
     }
 }
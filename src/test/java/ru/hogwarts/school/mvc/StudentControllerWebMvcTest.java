@@ -4,14 +4,43 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.hogwarts.school.async.SubsystemExecutors;
+import ru.hogwarts.school.batch.BatchReport;
+import ru.hogwarts.school.batch.MergeOrder;
+import ru.hogwarts.school.batch.WorkerPool;
+import ru.hogwarts.school.batch.WorkerTiming;
 import ru.hogwarts.school.controller.StudentController;
+import ru.hogwarts.school.dto.BatchResult;
+import ru.hogwarts.school.dto.PatchResult;
+import ru.hogwarts.school.dto.StudentPatch;
+import ru.hogwarts.school.dto.VersionStamp;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.service.ExportService;
+import ru.hogwarts.school.service.StudentImportService;
 import ru.hogwarts.school.service.StudentService;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+@Import(SubsystemExecutors.class)
 @WebMvcTest(StudentController.class)
 class StudentControllerWebMvcTest {
 
@@ -21,27 +50,208 @@ class StudentControllerWebMvcTest {
     @MockBean
     private StudentService studentService;
 
+    @MockBean
+    private ExportService exportService;
+
+    @MockBean
+    private StudentImportService studentImportService;
+
+    @Test
+    void printStudentsParallel_shouldReturnBatchReport() throws Exception {
+        // given
+        when(studentService.printStudents(WorkerPool.FORK_JOIN, MergeOrder.UNORDERED))
+                .thenReturn(report(WorkerPool.FORK_JOIN, MergeOrder.UNORDERED));
+
+        // when & then
+        performAsync(get("/student/print-parallel"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.students").value(6))
+                .andExpect(jsonPath("$.workers[0].worker").value("student-batch-fj-1"));
+
+        verify(studentService, times(1)).printStudents(WorkerPool.FORK_JOIN, MergeOrder.UNORDERED);
+    }
+
+    @Test
+    void printStudentsSynchronized_shouldRunOrderedOnFixedPool() throws Exception {
+        // given
+        when(studentService.printStudents(WorkerPool.FIXED, MergeOrder.ORDERED))
+                .thenReturn(report(WorkerPool.FIXED, MergeOrder.ORDERED));
+
+        // when & then
+        performAsync(get("/student/print-synchronized"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.order").value("ORDERED"));
+
+        verify(studentService, times(1)).printStudents(WorkerPool.FIXED, MergeOrder.ORDERED);
+    }
+
+    @Test
+    void getLastBatchReport_shouldReturnNotFoundBeforeFirstBatch() throws Exception {
+        // given
+        when(studentService.getLastBatchReport()).thenReturn(Optional.empty());
+
+        // when & then
+        mockMvc.perform(get("/student/batch/stats"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getTotalCount_shouldReturnServiceUnavailableWhenExecutorIsSaturated() throws Exception {
+        // given
+        when(studentService.getTotalCount()).thenThrow(new RejectedExecutionException("STUDENT executor is saturated"));
+
+        // when & then
+        mockMvc.perform(get("/student/count"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"));
+    }
+
+    @Test
+    void getStudent_shouldReturnNotModifiedWhenModifiedSinceMatches() throws Exception {
+        // given
+        when(studentService.findStudentVersion(1L))
+                .thenReturn(Optional.of(new VersionStamp(2L, Instant.parse("2024-09-01T10:00:00Z"))));
+
+        // when & then
+        mockMvc.perform(get("/student/1").header("If-Modified-Since", "Sun, 01 Sep 2024 10:00:00 GMT"))
+                .andExpect(status().isNotModified());
+
+        verify(studentService, never()).findStudent(any());
+    }
+
+    @Test
+    void getStudent_shouldReturnStudentWhenETagIsStale() throws Exception {
+        // given
+        when(studentService.findStudentVersion(1L))
+                .thenReturn(Optional.of(new VersionStamp(2L, Instant.parse("2024-09-01T10:00:00Z"))));
+        when(studentService.findStudent(1L)).thenReturn(Optional.of(new Student(1L, "Гарри Поттер", 17)));
+
+        // when & then
+        mockMvc.perform(get("/student/1").header("If-None-Match", "\"1\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"2\""))
+                .andExpect(jsonPath("$.name").value("Гарри Поттер"));
+    }
+
+    @Test
+    void getStudent_shouldReturnStudentWhenFacultyVersionChanged() throws Exception {
+        // given
+        when(studentService.findStudentVersion(1L)).thenReturn(Optional.of(
+                new VersionStamp(2L, Instant.parse("2024-09-01T10:00:00Z"), 4L, Instant.parse("2024-09-02T10:00:00Z"))));
+        when(studentService.findStudent(1L)).thenReturn(Optional.of(new Student(1L, "Гарри Поттер", 17)));
+
+        // when & then
+        mockMvc.perform(get("/student/1").header("If-None-Match", "\"2-3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"2-4\""))
+                .andExpect(header().string("Last-Modified", "Mon, 02 Sep 2024 10:00:00 GMT"));
+    }
+
+    @Test
+    void patchStudent_shouldAcceptTagWithFacultyVersion() throws Exception {
+        // given
+        when(studentService.patchStudent(eq(1L), eq(2L), any())).thenReturn(PatchResult.updated(3L));
+
+        // when & then
+        mockMvc.perform(patch("/student/1").header("If-Match", "\"2-4\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"age\":18}"))
+                .andExpect(status().isNoContent());
+    }
+
     @Test
-    void printStudentsParallel_shouldReturnOk() throws Exception {
+    void getStudentsByIds_shouldReturnFoundStudentsAndMissingIds() throws Exception {
         // given
-        doNothing().when(studentService).printStudentsParallel();
+        when(studentService.findStudents(List.of(2L, 1L, 9L))).thenReturn(new BatchResult<>(
+                List.of(new Student(2L, "Гермиона Грейнджер", 17), new Student(1L, "Гарри Поттер", 17)),
+                List.of(9L)));
 
         // when & then
-        mockMvc.perform(get("/student/print-parallel"))
-                .andExpect(status().isOk());
+        mockMvc.perform(get("/student/batch").param("ids", "2,1,9"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(2))
+                .andExpect(jsonPath("$.items[1].id").value(1))
+                .andExpect(jsonPath("$.missingIds[0]").value(9));
+    }
+
+    @Test
+    void patchStudent_shouldReturnNewVersionAsETag() throws Exception {
+        // given
+        when(studentService.patchStudent(1L, 3L, new StudentPatch(null, 18, null)))
+                .thenReturn(PatchResult.updated(4L));
 
-        verify(studentService, times(1)).printStudentsParallel();
+        // when & then
+        mockMvc.perform(patch("/student/1").header("If-Match", "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"age\":18}"))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string("ETag", "\"4\""));
     }
 
     @Test
-    void printStudentsSynchronized_shouldReturnOk() throws Exception {
+    void patchStudent_shouldTreatExplicitNullFacultyAsLeavingFaculty() throws Exception {
         // given
-        doNothing().when(studentService).printStudentsSynchronized();
+        when(studentService.patchStudent(1L, 0L, new StudentPatch(null, null, Optional.empty())))
+                .thenReturn(PatchResult.updated(1L));
 
         // when & then
-        mockMvc.perform(get("/student/print-synchronized"))
-                .andExpect(status().isOk());
+        mockMvc.perform(patch("/student/1").header("If-Match", "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"facultyId\":null}"))
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    void patchStudent_shouldReturnConflictForStaleVersion() throws Exception {
+        // given
+        when(studentService.patchStudent(eq(1L), eq(2L), any())).thenReturn(PatchResult.conflict());
+
+        // when & then
+        mockMvc.perform(patch("/student/1").header("If-Match", "\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"Гарри Джеймс Поттер\"}"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void patchStudent_shouldReturnConflictForTakenName() throws Exception {
+        // given
+        when(studentService.patchStudent(eq(1L), eq(2L), any()))
+                .thenThrow(new DuplicateKeyException("Student name 'Рон Уизли' is already taken"));
+
+        // when & then
+        mockMvc.perform(patch("/student/1").header("If-Match", "\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"Рон Уизли\"}"))
+                .andExpect(status().isConflict())
+                .andExpect(content().string("Student name 'Рон Уизли' is already taken"));
+    }
+
+    @Test
+    void patchStudent_shouldReturnBadRequestForMissingFaculty() throws Exception {
+        // given
+        when(studentService.patchStudent(eq(1L), eq(2L), any()))
+                .thenThrow(new IllegalArgumentException("Faculty 9 does not exist"));
+
+        // when & then
+        mockMvc.perform(patch("/student/1").header("If-Match", "\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"facultyId\":9}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void patchStudent_shouldRequireIfMatch() throws Exception {
+        // when & then
+        mockMvc.perform(patch("/student/1")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"age\":18}"))
+                .andExpect(status().isPreconditionRequired());
+        verify(studentService, never()).patchStudent(any(), anyLong(), any());
+    }
+
+    private static BatchReport report(WorkerPool pool, MergeOrder order) {
+        return new BatchReport("print-names", pool, order, 6, 1, 2.0, 3000.0,
+                List.of(new WorkerTiming("student-batch-fj-1", 1, 6, 1.5)));
+    }
 
-        verify(studentService, times(1)).printStudentsSynchronized();
+    private ResultActions performAsync(MockHttpServletRequestBuilder builder) throws Exception {
+        MvcResult started = mockMvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,128 @@
+package ru.hogwarts.school.repository;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.hogwarts.school.cache.RegionStatistics;
+import ru.hogwarts.school.cache.SecondLevelCacheStatistics;
+import ru.hogwarts.school.model.Faculty;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs outside a test transaction: the query cache treats a table written by the still-open
+ * transaction as stale, so every repository call here commits on its own.
+ */
+@DataJpaTest(properties = {
+        "spring.liquibase.enabled=false",
+        "spring.sql.init.mode=never",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=true",
+        "spring.jpa.properties.hibernate.cache.region.factory_class=jcache",
+        "spring.jpa.properties.hibernate.javax.cache.provider=com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider",
+        "spring.jpa.properties.hibernate.javax.cache.missing_cache_strategy=create"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class FacultySecondLevelCacheTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private FacultyRepository facultyRepository;
+
+    private Faculty gryffindor;
+
+    @BeforeEach
+    void setUp() {
+        gryffindor = facultyRepository.save(new Faculty(null, "Gryffindor", "Red"));
+        facultyRepository.save(new Faculty(null, "Ravenclaw", "Blue"));
+        entityManagerFactory.getCache().evictAll();
+        statistics().clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        facultyRepository.deleteAll();
+    }
+
+    @Test
+    void findById_shouldServeRepeatedLoadsFromSecondLevelCache() {
+        // given
+        facultyRepository.findById(gryffindor.getId());
+
+        // when
+        Faculty faculty = countingStatements(0, () -> facultyRepository.findById(gryffindor.getId()).orElseThrow());
+
+        // then
+        assertEquals("Gryffindor", faculty.getName());
+        assertEquals(1, statistics().getSecondLevelCacheHitCount());
+    }
+
+    @Test
+    void findByColor_shouldServeRepeatedQueriesFromQueryCache() {
+        // given
+        facultyRepository.findByColor("Red");
+
+        // when
+        List<Faculty> faculties = countingStatements(0, () -> facultyRepository.findByColor("Red"));
+
+        // then
+        assertEquals(List.of("Gryffindor"), faculties.stream().map(Faculty::getName).toList());
+        assertEquals(1, statistics().getQueryCacheHitCount());
+    }
+
+    @Test
+    void findByColor_shouldRequeryAfterFacultyChanges() {
+        // given
+        facultyRepository.findByColor("Red");
+        Faculty faculty = facultyRepository.findById(gryffindor.getId()).orElseThrow();
+        faculty.setColor("Scarlet");
+        facultyRepository.save(faculty);
+
+        // when
+        List<Faculty> faculties = countingStatements(1, () -> facultyRepository.findByColor("Red"));
+
+        // then
+        assertTrue(faculties.isEmpty());
+    }
+
+    @Test
+    void getRegionStatistics_shouldReportFacultyRegion() {
+        // given
+        facultyRepository.findById(gryffindor.getId());
+        facultyRepository.findById(gryffindor.getId());
+
+        // when
+        List<RegionStatistics> regions = new SecondLevelCacheStatistics(entityManagerFactory).getRegionStatistics();
+
+        // then
+        RegionStatistics faculty = regions.stream()
+                .filter(region -> region.region().equals("faculty"))
+                .findFirst().orElseThrow();
+        assertEquals(1, faculty.hits());
+        assertEquals(1, faculty.misses());
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private <T> T countingStatements(long expected, Supplier<T> action) {
+        long before = statistics().getPrepareStatementCount();
+        T result = action.get();
+        assertEquals(expected, statistics().getPrepareStatementCount() - before);
+        return result;
+    }
+}
@@ -0,0 +1,122 @@
+package ru.hogwarts.school.repository;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import ru.hogwarts.school.dto.AvatarDto;
+import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.AvatarData;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.liquibase.enabled=false",
+        "spring.sql.init.mode=never",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class FacultyStudentsBulkTest {
+    private static final int STUDENTS = 40;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private AvatarRepository avatarRepository;
+
+    @Autowired
+    private AvatarDataRepository avatarDataRepository;
+
+    private Faculty gryffindor;
+    private Faculty ravenclaw;
+    private Student luna;
+
+    @BeforeEach
+    void setUp() {
+        gryffindor = entityManager.persist(new Faculty(null, "Gryffindor", "Red"));
+        ravenclaw = entityManager.persist(new Faculty(null, "Ravenclaw", "Blue"));
+        for (int i = 0; i < STUDENTS; i++) {
+            Student student = entityManager.persist(new Student(null, "Student " + i, 17, gryffindor));
+            if (i % 10 == 0) {
+                Avatar avatar = entityManager.persist(new Avatar(null, i + ".png", 3, "image/png", null, student));
+                entityManager.persist(new AvatarData(avatar, new byte[]{1, 2, 3}));
+            }
+        }
+        luna = entityManager.persist(new Student(null, "Полумна Лавгуд", 16, ravenclaw));
+        entityManager.flush();
+        entityManager.clear();
+        statistics().clear();
+    }
+
+    @Test
+    void deleteInBulk_shouldRemoveStudentsAndAvatarsWithOneStatementPerTable() {
+        // when
+        avatarDataRepository.deleteInBulkByStudentFacultyId(gryffindor.getId());
+        int avatars = avatarRepository.deleteInBulkByStudentFacultyId(gryffindor.getId());
+        int students = studentRepository.deleteInBulkByFacultyId(gryffindor.getId());
+
+        // then
+        assertEquals(3, statistics().getPrepareStatementCount());
+        assertEquals(4, avatars);
+        assertEquals(STUDENTS, students);
+        assertEquals(1, studentRepository.count());
+        assertEquals(0, avatarDataRepository.count());
+    }
+
+    @Test
+    void findDtosByStudentFacultyId_shouldReadAvatarFilesOfFacultyWithOneStatement() {
+        // when
+        List<AvatarDto> avatars = avatarRepository.findDtosByStudentFacultyId(gryffindor.getId());
+
+        // then
+        assertEquals(1, statistics().getPrepareStatementCount());
+        assertEquals(List.of("0.png", "10.png", "20.png", "30.png"),
+                avatars.stream().map(AvatarDto::filePath).sorted().toList());
+        assertTrue(avatarRepository.findDtosByStudentFacultyId(ravenclaw.getId()).isEmpty());
+    }
+
+    @Test
+    void moveInBulk_shouldReassignEveryStudentWithOneStatementAndBumpVersions() {
+        // when
+        int moved = studentRepository.moveInBulkByFacultyId(gryffindor.getId(),
+                entityManager.getEntityManager().getReference(Faculty.class, ravenclaw.getId()), Instant.now());
+
+        // then
+        assertEquals(1, statistics().getPrepareStatementCount());
+        assertEquals(STUDENTS, moved);
+        assertEquals(STUDENTS + 1, studentRepository.findSnapshotsByFacultyId(ravenclaw.getId()).size());
+        assertTrue(studentRepository.findAll().stream()
+                .filter(student -> !student.getId().equals(luna.getId()))
+                .allMatch(student -> student.getVersion() == 1L && student.getLastModified() != null));
+    }
+
+    @Test
+    void moveInBulk_shouldDetachStudentsForNullTarget() {
+        // when
+        int moved = studentRepository.moveInBulkByFacultyId(gryffindor.getId(), null, Instant.now());
+
+        // then
+        assertEquals(STUDENTS, moved);
+        assertTrue(studentRepository.findSnapshotsByFacultyId(gryffindor.getId()).isEmpty());
+        assertEquals(STUDENTS + 1, studentRepository.count());
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
@@ -0,0 +1,155 @@
+package ru.hogwarts.school.repository;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import ru.hogwarts.school.dto.FacultyDto;
+import ru.hogwarts.school.dto.FacultyStats;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.liquibase.enabled=false",
+        "spring.sql.init.mode=never",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class RosterQueryCountTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private FacultyRepository facultyRepository;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    private Faculty gryffindor;
+    private Faculty ravenclaw;
+    private Student harry;
+    private Student orphan;
+
+    @BeforeEach
+    void setUp() {
+        gryffindor = entityManager.persist(new Faculty(null, "Gryffindor", "Red"));
+        ravenclaw = entityManager.persist(new Faculty(null, "Ravenclaw", "Blue"));
+        harry = entityManager.persist(new Student(null, "Гарри Поттер", 17, gryffindor));
+        entityManager.persist(new Student(null, "Гермиона Грейнджер", 17, gryffindor));
+        entityManager.persist(new Student(null, "Рон Уизли", 17, gryffindor));
+        orphan = entityManager.persist(new Student(null, "Полумна Лавгуд", 16));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void findRoster_shouldReadFacultyStudentsInOneStatement() {
+        // when
+        List<FacultyRosterRow> rows = countingStatements(1, () -> facultyRepository.findRoster(gryffindor.getId()));
+
+        // then
+        assertEquals(3, rows.size());
+        assertEquals(List.of("Гарри Поттер", "Гермиона Грейнджер", "Рон Уизли"),
+                rows.stream().map(FacultyRosterRow::getName).toList());
+    }
+
+    @Test
+    void findRoster_shouldReturnSingleEmptyRowForFacultyWithoutStudents() {
+        // when
+        List<FacultyRosterRow> rows = countingStatements(1, () -> facultyRepository.findRoster(ravenclaw.getId()));
+
+        // then
+        assertEquals(1, rows.size());
+        assertNull(rows.get(0).getStudentId());
+        assertTrue(facultyRepository.findRoster(-1L).isEmpty());
+    }
+
+    @Test
+    void findFacultyRow_shouldReadStudentFacultyInOneStatement() {
+        // when
+        Optional<StudentFacultyRow> row = countingStatements(1, () -> studentRepository.findFacultyRow(harry.getId()));
+
+        // then
+        assertTrue(row.isPresent());
+        assertEquals(new FacultyDto(gryffindor.getId(), "Gryffindor", "Red"), row.get().toFacultyDto());
+    }
+
+    @Test
+    void findFacultyRow_shouldReturnRowWithoutFacultyForUnassignedStudent() {
+        // when
+        Optional<StudentFacultyRow> row = countingStatements(1, () -> studentRepository.findFacultyRow(orphan.getId()));
+
+        // then
+        assertTrue(row.isPresent());
+        assertNull(row.get().toFacultyDto());
+    }
+
+    @Test
+    void findWithFacultyByIdIn_shouldLoadStudentsAndFacultiesInOneStatement() {
+        // when
+        List<String> faculties = countingStatements(1, () -> studentRepository
+                .findWithFacultyByIdIn(List.of(harry.getId(), orphan.getId())).stream()
+                .map(student -> student.getFaculty() != null ? student.getFaculty().getName() : "-")
+                .sorted()
+                .toList());
+
+        // then
+        assertEquals(List.of("-", "Gryffindor"), faculties);
+    }
+
+    @Test
+    void findFacultyStats_shouldAggregateEveryFacultyInOneStatement() {
+        // given
+        entityManager.persist(new Student(null, "Чжоу Чанг", 16, ravenclaw));
+        entityManager.persist(new Student(null, "Падма Патил", 19, ravenclaw));
+        entityManager.flush();
+
+        // when
+        List<FacultyStats> stats = countingStatements(1, () -> studentRepository.findFacultyStats());
+
+        // then
+        assertEquals(List.of(
+                new FacultyStats(gryffindor.getId(), 3L, 17.0, 17, 17),
+                new FacultyStats(ravenclaw.getId(), 2L, 17.5, 16, 19)), stats);
+    }
+
+    @Test
+    void countByFacultyAndAge_shouldGroupStudentsOfEveryFacultyInOneStatement() {
+        // given
+        entityManager.persist(new Student(null, "Чжоу Чанг", 16, ravenclaw));
+        entityManager.flush();
+
+        // when
+        List<String> rows = countingStatements(1, () -> studentRepository.countByFacultyAndAge().stream()
+                .map(row -> row.getFacultyId() + ":" + row.getAge() + "=" + row.getStudentCount())
+                .sorted()
+                .toList());
+
+        // then
+        assertEquals(List.of(gryffindor.getId() + ":17=3", ravenclaw.getId() + ":16=1"), rows);
+    }
+
+    /**
+     * Runs the action and asserts how many JDBC statements Hibernate prepared while it ran.
+     */
+    private <T> T countingStatements(long expected, Supplier<T> action) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        T result = action.get();
+        assertEquals(expected, statistics.getPrepareStatementCount(), "prepared statements");
+        return result;
+    }
+}
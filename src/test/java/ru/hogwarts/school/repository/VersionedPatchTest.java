@@ -0,0 +1,115 @@
+package ru.hogwarts.school.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import ru.hogwarts.school.dto.FacultyPatch;
+import ru.hogwarts.school.dto.StudentPatch;
+import ru.hogwarts.school.dto.VersionStamp;
+import ru.hogwarts.school.event.StudentSnapshot;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.liquibase.enabled=false",
+        "spring.sql.init.mode=never"
+})
+class VersionedPatchTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private FacultyRepository facultyRepository;
+
+    private Faculty gryffindor;
+    private Faculty ravenclaw;
+    private Student harry;
+
+    @BeforeEach
+    void setUp() {
+        gryffindor = entityManager.persist(new Faculty(null, "Gryffindor", "Red"));
+        ravenclaw = entityManager.persist(new Faculty(null, "Ravenclaw", "Blue"));
+        harry = entityManager.persist(new Student(null, "Гарри Поттер", 17, gryffindor));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void findVersionById_shouldIncludeFacultyVersion() {
+        // given
+        facultyRepository.patch(gryffindor.getId(), 0, new FacultyPatch("Gryffindor House", null));
+        Student orphan = entityManager.persistFlushFind(new Student(null, "Луна Лавгуд", 16));
+
+        // when
+        VersionStamp harryStamp = studentRepository.findVersionById(harry.getId()).orElseThrow();
+        VersionStamp orphanStamp = studentRepository.findVersionById(orphan.getId()).orElseThrow();
+
+        // then
+        assertEquals("\"0-1\"", harryStamp.tag());
+        assertEquals("\"0\"", orphanStamp.tag());
+    }
+
+    @Test
+    void patch_shouldChangeOnlyPatchedFieldsAndBumpVersion() {
+        // when
+        int updated = studentRepository.patch(harry.getId(), 0, new StudentPatch(null, 18, null));
+
+        // then
+        assertEquals(1, updated);
+        Student student = entityManager.find(Student.class, harry.getId());
+        assertEquals("Гарри Поттер", student.getName());
+        assertEquals(18, student.getAge());
+        assertEquals(gryffindor.getId(), student.getFaculty().getId());
+        assertEquals(1L, student.getVersion());
+        assertNotNull(student.getLastModified());
+    }
+
+    @Test
+    void patch_shouldMoveAndClearFaculty() {
+        // when
+        studentRepository.patch(harry.getId(), 0, new StudentPatch(null, null, Optional.of(ravenclaw.getId())));
+        StudentSnapshot moved = studentRepository.findSnapshotByIdAndVersion(harry.getId(), 1).orElseThrow();
+        studentRepository.patch(harry.getId(), 1, new StudentPatch(null, null, Optional.empty()));
+
+        // then
+        assertEquals(ravenclaw.getId(), moved.facultyId());
+        assertNull(entityManager.find(Student.class, harry.getId()).getFaculty());
+    }
+
+    @Test
+    void patch_shouldNotTouchRowWithAnotherVersion() {
+        // when
+        int updated = studentRepository.patch(harry.getId(), 5, new StudentPatch("Гарри Джеймс Поттер", null, null));
+
+        // then
+        assertEquals(0, updated);
+        Student student = entityManager.find(Student.class, harry.getId());
+        assertEquals("Гарри Поттер", student.getName());
+        assertEquals(0L, student.getVersion());
+    }
+
+    @Test
+    void patch_shouldUpdateFacultyWhenVersionMatches() {
+        // when
+        int stale = facultyRepository.patch(gryffindor.getId(), 1, new FacultyPatch(null, "Scarlet"));
+        int updated = facultyRepository.patch(gryffindor.getId(), 0, new FacultyPatch(null, "Scarlet"));
+
+        // then
+        assertEquals(0, stale);
+        assertEquals(1, updated);
+        Faculty faculty = entityManager.find(Faculty.class, gryffindor.getId());
+        assertEquals("Gryffindor", faculty.getName());
+        assertEquals("Scarlet", faculty.getColor());
+        assertEquals(1L, faculty.getVersion());
+    }
+}
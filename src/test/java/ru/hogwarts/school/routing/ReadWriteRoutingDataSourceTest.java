@@ -0,0 +1,121 @@
+package ru.hogwarts.school.routing;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadWriteRoutingDataSourceTest {
+
+    @AfterEach
+    void tearDown() {
+        RoutingContext.clear();
+    }
+
+    @Test
+    void readOnlyTransaction_shouldReadFromReplica() {
+        // given
+        Routing routing = new Routing(database("primary"), database("replica"), Duration.ofSeconds(30));
+
+        // when
+        String served = routing.readInTransaction(true);
+
+        // then
+        assertEquals("replica", served);
+    }
+
+    @Test
+    void readWriteTransaction_shouldUsePrimary() {
+        // given
+        Routing routing = new Routing(database("primary"), database("replica"), Duration.ofSeconds(30));
+
+        // when
+        String served = routing.readInTransaction(false);
+
+        // then
+        assertEquals("primary", served);
+    }
+
+    @Test
+    void readOnlyTransaction_shouldUsePrimaryWhenPinned() {
+        // given
+        Routing routing = new Routing(database("primary"), database("replica"), Duration.ofSeconds(30));
+        RoutingContext.pinToPrimary();
+
+        // when
+        String served = routing.readInTransaction(true);
+
+        // then
+        assertEquals("primary", served);
+    }
+
+    @Test
+    void onPrimary_shouldRouteReadOnlyTransactionToPrimaryAndThenUnpin() {
+        // given
+        Routing routing = new Routing(database("primary"), database("replica"), Duration.ofSeconds(30));
+
+        // when
+        String served = RoutingContext.onPrimary(() -> routing.readInTransaction(true));
+
+        // then
+        assertEquals("primary", served);
+        assertFalse(RoutingContext.isPinnedToPrimary());
+        assertEquals("replica", routing.readInTransaction(true));
+    }
+
+    @Test
+    void readOnlyTransaction_shouldFailOverToPrimaryWhenReplicaIsDown() {
+        // given
+        JdbcDataSource missingReplica = new JdbcDataSource();
+        missingReplica.setURL("jdbc:h2:mem:missing-" + UUID.randomUUID() + ";IFEXISTS=TRUE");
+        Routing routing = new Routing(database("primary"), missingReplica, Duration.ofSeconds(30));
+
+        // when
+        String served = routing.readInTransaction(true);
+
+        // then
+        assertEquals("primary", served);
+        assertFalse(routing.dataSource.isReplicaAvailable());
+    }
+
+    private static DataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE marker (name VARCHAR(16))");
+        jdbcTemplate.update("INSERT INTO marker (name) VALUES (?)", name);
+        return dataSource;
+    }
+
+    /**
+     * The stack the application wires up: routing behind a lazy proxy, driven by a transaction manager.
+     */
+    private static final class Routing {
+        private final ReadWriteRoutingDataSource dataSource;
+        private final JdbcTemplate jdbcTemplate;
+        private final DataSourceTransactionManager transactionManager;
+
+        Routing(DataSource primary, DataSource replica, Duration retryInterval) {
+            this.dataSource = new ReadWriteRoutingDataSource(primary, replica, retryInterval);
+            LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(dataSource);
+            this.jdbcTemplate = new JdbcTemplate(proxy);
+            this.transactionManager = new DataSourceTransactionManager(proxy);
+        }
+
+        String readInTransaction(boolean readOnly) {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setReadOnly(readOnly);
+            return transactionTemplate.execute(status ->
+                    jdbcTemplate.queryForObject("SELECT name FROM marker", String.class));
+        }
+    }
+}
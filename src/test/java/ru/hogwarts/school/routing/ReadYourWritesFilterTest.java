@@ -0,0 +1,70 @@
+package ru.hogwarts.school.routing;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.Cookie;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadYourWritesFilterTest {
+    private static final Instant NOW = Instant.parse("2024-09-01T10:00:00Z");
+
+    private final ReadYourWritesFilter filter =
+            new ReadYourWritesFilter(Duration.ofSeconds(5), Clock.fixed(NOW, ZoneOffset.UTC));
+
+    private final AtomicBoolean pinned = new AtomicBoolean();
+    private final FilterChain chain = (request, response) -> pinned.set(RoutingContext.isPinnedToPrimary());
+
+    @Test
+    void write_shouldPinRequestAndSetWindowCookie() throws Exception {
+        // given
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/student");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // when
+        filter.doFilter(request, response, chain);
+
+        // then
+        assertTrue(pinned.get());
+        assertFalse(RoutingContext.isPinnedToPrimary());
+        Cookie cookie = response.getCookie(ReadYourWritesFilter.COOKIE_NAME);
+        assertNotNull(cookie);
+        assertEquals(String.valueOf(NOW.plusSeconds(5).toEpochMilli()), cookie.getValue());
+    }
+
+    @Test
+    void read_shouldBePinnedInsideWindow() throws Exception {
+        // given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/student/1");
+        request.setCookies(new Cookie(ReadYourWritesFilter.COOKIE_NAME, String.valueOf(NOW.toEpochMilli() + 1)));
+
+        // when
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        // then
+        assertTrue(pinned.get());
+    }
+
+    @Test
+    void read_shouldNotBePinnedAfterWindow() throws Exception {
+        // given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/student/1");
+        request.setCookies(new Cookie(ReadYourWritesFilter.COOKIE_NAME, String.valueOf(NOW.toEpochMilli())));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // when
+        filter.doFilter(request, response, chain);
+
+        // then
+        assertFalse(pinned.get());
+        assertNull(response.getCookie(ReadYourWritesFilter.COOKIE_NAME));
+    }
+}
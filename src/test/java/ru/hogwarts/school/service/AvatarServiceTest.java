@@ -0,0 +1,185 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.hogwarts.school.dto.AvatarContent;
+import ru.hogwarts.school.dto.AvatarDto;
+import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.AvatarData;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.AvatarDataRepository;
+import ru.hogwarts.school.repository.AvatarRepository;
+import ru.hogwarts.school.storage.AvatarFileStore;
+import ru.hogwarts.school.storage.AvatarPreviewGenerator;
+
+import javax.persistence.EntityManager;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AvatarServiceTest {
+
+    @Mock
+    private AvatarRepository avatarRepository;
+
+    @Mock
+    private AvatarDataRepository avatarDataRepository;
+
+    @Mock
+    private AvatarFileStore avatarFileStore;
+
+    @Mock
+    private AvatarPreviewGenerator avatarPreviewGenerator;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @InjectMocks
+    private AvatarService avatarService;
+
+    private final Student testStudent = new Student(1L, "Гарри Поттер", 17);
+
+    @Test
+    void saveAvatar_shouldStoreBytesInFileStore() {
+        // given
+        byte[] bytes = {1, 2, 3};
+        Avatar avatar = new Avatar(null, "Harry.PNG", 0, "image/png", bytes, testStudent);
+        when(entityManager.find(Student.class, 1L)).thenReturn(testStudent);
+        when(avatarRepository.save(avatar)).thenAnswer(invocation -> {
+            avatar.setId(10L);
+            return avatar;
+        });
+        AvatarFileStore.StagedFile staged = new AvatarFileStore.StagedFile("10.png", Path.of("10.png.tmp"));
+        when(avatarFileStore.stage(10L, "png", bytes)).thenReturn(staged);
+
+        // when
+        AvatarDto result = avatarService.saveAvatar(avatar);
+
+        // then
+        assertEquals(new AvatarDto(10L, "10.png", 3, "image/png", 1L, null, null), result);
+        verify(avatarRepository, times(1)).flush();
+        verify(avatarFileStore, times(1)).publish(staged);
+        verify(avatarPreviewGenerator, times(1)).submit(10L, "10.png");
+        verify(avatarDataRepository, never()).save(any());
+    }
+
+    @Test
+    void saveAvatar_shouldNotWriteBytesWhenNoneUploaded() {
+        // given
+        Avatar avatar = new Avatar(5L, "harry.png", 42, "image/png", null, testStudent);
+        when(entityManager.find(Student.class, 1L)).thenReturn(testStudent);
+        when(avatarRepository.save(avatar)).thenReturn(avatar);
+
+        // when
+        AvatarDto result = avatarService.saveAvatar(avatar);
+
+        // then
+        assertEquals(42, result.fileSize());
+        verify(avatarFileStore, never()).stage(any(), any(), any());
+        verifyNoInteractions(avatarPreviewGenerator);
+    }
+
+    @Test
+    void saveAvatar_shouldPublishFileOnlyAfterCommitAndDiscardItOnRollback() {
+        // given
+        byte[] bytes = {1, 2, 3};
+        Avatar avatar = new Avatar(10L, "harry.png", 0, "image/png", bytes, testStudent);
+        when(entityManager.find(Student.class, 1L)).thenReturn(testStudent);
+        when(avatarRepository.save(avatar)).thenReturn(avatar);
+        AvatarFileStore.StagedFile staged = new AvatarFileStore.StagedFile("10.png", Path.of("10.png.tmp"));
+        when(avatarFileStore.stage(10L, "png", bytes)).thenReturn(staged);
+        TransactionSynchronizationManager.initSynchronization();
+
+        // when
+        try {
+            avatarService.saveAvatar(avatar);
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // then
+        verify(avatarFileStore, times(1)).discard(staged);
+        verify(avatarFileStore, never()).publish(any());
+        verifyNoInteractions(avatarPreviewGenerator);
+    }
+
+    @Test
+    void deleteFilesAfterCommit_shouldDeleteFilesAndPreviewsOnlyOnceCommitted() {
+        // given
+        List<AvatarDto> avatars = List.of(
+                new AvatarDto(10L, "10.png", 3, "image/png", 1L, 0L, null),
+                new AvatarDto(11L, null, 0, "image/png", 2L, 0L, null));
+        TransactionSynchronizationManager.initSynchronization();
+
+        // when
+        try {
+            avatarService.deleteFilesAfterCommit(avatars);
+            verifyNoInteractions(avatarFileStore, avatarPreviewGenerator);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // then
+        verify(avatarFileStore).delete("10.png");
+        verify(avatarFileStore).delete(null);
+        verify(avatarPreviewGenerator).deletePreviews(10L);
+        verify(avatarPreviewGenerator).deletePreviews(11L);
+    }
+
+    @Test
+    void deleteFilesAfterCommit_shouldKeepFilesWhenRolledBack() {
+        // given
+        TransactionSynchronizationManager.initSynchronization();
+
+        // when
+        try {
+            avatarService.deleteFilesAfterCommit(List.of(new AvatarDto(10L, "10.png", 3, "image/png", 1L, 0L, null)));
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // then
+        verifyNoInteractions(avatarFileStore, avatarPreviewGenerator);
+    }
+
+    @Test
+    void saveAvatar_shouldRejectUnknownStudent() {
+        // given
+        Avatar avatar = new Avatar(null, "harry.png", 0, "image/png", new byte[]{1}, new Student(99L, null, 0));
+
+        // when & then
+        assertThrows(IllegalArgumentException.class, () -> avatarService.saveAvatar(avatar));
+        verifyNoInteractions(avatarRepository, avatarFileStore);
+    }
+
+    @Test
+    void loadAvatarContent_shouldReturnBytesWithMediaType() {
+        // given
+        Avatar avatar = new Avatar(10L, "harry.png", 3, "image/png", null, testStudent);
+        when(avatarDataRepository.findByStudentId(1L))
+                .thenReturn(Optional.of(new AvatarData(avatar, new byte[]{1, 2, 3})));
+
+        // when
+        Optional<AvatarContent> result = avatarService.loadAvatarContent(1L);
+
+        // then
+        assertTrue(result.isPresent());
+        assertEquals("image/png", result.get().mediaType());
+        assertArrayEquals(new byte[]{1, 2, 3}, result.get().data());
+    }
+}
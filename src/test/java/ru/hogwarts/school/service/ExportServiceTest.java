@@ -0,0 +1,69 @@
+package ru.hogwarts.school.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.hogwarts.school.dto.FacultyDto;
+import ru.hogwarts.school.dto.StudentDto;
+import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExportServiceTest {
+
+    @Mock
+    private StudentRepository studentRepository;
+
+    @Mock
+    private FacultyRepository facultyRepository;
+
+    private ExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new ExportService(studentRepository, facultyRepository, new ObjectMapper(), 2);
+    }
+
+    @Test
+    void exportStudents_shouldWriteOneJsonObjectPerLine() throws Exception {
+        // given
+        when(studentRepository.streamAllAsDto()).thenReturn(Stream.of(
+                new StudentDto(1L, "Гарри Поттер", 17, 1L),
+                new StudentDto(2L, "Луна Лавгуд", 16, 3L),
+                new StudentDto(3L, "Седрик Диггори", 18, null)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        exportService.exportStudents(out);
+
+        // then
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("{\"id\":1,\"name\":\"Гарри Поттер\",\"age\":17,\"facultyId\":1}", lines[0]);
+        assertEquals("{\"id\":3,\"name\":\"Седрик Диггори\",\"age\":18,\"facultyId\":null}", lines[2]);
+        assertTrue(out.toString(StandardCharsets.UTF_8).endsWith("\n"));
+    }
+
+    @Test
+    void exportFaculties_shouldWriteNothingForEmptyTable() throws Exception {
+        // given
+        when(facultyRepository.streamAllAsDto()).thenReturn(Stream.<FacultyDto>empty());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        exportService.exportFaculties(out);
+
+        // then
+        assertEquals(0, out.size());
+    }
+}
@@ -2,17 +2,53 @@ package ru.hogwarts.school.service;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import ru.hogwarts.school.cache.SecondLevelCacheStatistics;
+import ru.hogwarts.school.cache.StudentCache;
+import ru.hogwarts.school.dto.AvatarDto;
+import ru.hogwarts.school.dto.BatchResult;
+import ru.hogwarts.school.dto.FacultyPatch;
+import ru.hogwarts.school.dto.FacultyStats;
+import ru.hogwarts.school.dto.PatchResult;
+import ru.hogwarts.school.dto.StudentDto;
+import ru.hogwarts.school.dto.VersionStamp;
+import ru.hogwarts.school.event.FacultyChangedEvent;
+import ru.hogwarts.school.event.FacultySnapshot;
+import ru.hogwarts.school.event.StudentSnapshot;
+import ru.hogwarts.school.event.StudentsDeletedEvent;
+import ru.hogwarts.school.event.StudentsMovedEvent;
+import ru.hogwarts.school.index.FacultyLookupIndex;
 import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.repository.AvatarDataRepository;
+import ru.hogwarts.school.repository.AvatarRepository;
+import ru.hogwarts.school.repository.FacultyIdName;
 import ru.hogwarts.school.repository.FacultyRepository;
-
+import ru.hogwarts.school.repository.FacultyRosterRow;
+import ru.hogwarts.school.repository.StudentRepository;
+import ru.hogwarts.school.stats.FacultyAgeStats;
+import ru.hogwarts.school.stats.LongestFacultyName;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.sql.SQLException;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -21,6 +57,42 @@ class FacultyServiceTest {
     @Mock
     private FacultyRepository facultyRepository;
 
+    @Mock
+    private LongestFacultyName longestFacultyName;
+
+    @Mock
+    private FacultyLookupIndex facultyLookupIndex;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private SecondLevelCacheStatistics secondLevelCacheStatistics;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private StudentRepository studentRepository;
+
+    @Mock
+    private AvatarRepository avatarRepository;
+
+    @Mock
+    private AvatarDataRepository avatarDataRepository;
+
+    @Mock
+    private AvatarService avatarService;
+
+    @Mock
+    private StudentCache studentCache;
+
+    @Mock
+    private FacultyAgeStats facultyAgeStats;
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
     @InjectMocks
     private FacultyService facultyService;
 
@@ -38,6 +110,7 @@ class FacultyServiceTest {
         assertNotNull(result);
         assertEquals("Gryffindor", result.getName());
         verify(facultyRepository, times(1)).save(testFaculty);
+        verify(eventPublisher, times(1)).publishEvent(FacultyChangedEvent.created(testFaculty));
     }
 
     @Test
@@ -54,6 +127,105 @@ class FacultyServiceTest {
         verify(facultyRepository, times(1)).findById(1L);
     }
 
+    @Test
+    void findFaculties_shouldReadCachedFacultiesByIdAndQueryTheRestTogether() {
+        // given
+        Faculty ravenclaw = new Faculty(2L, "Ravenclaw", "Blue");
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        Cache secondLevelCache = mock(Cache.class);
+        when(entityManager.getEntityManagerFactory()).thenReturn(entityManagerFactory);
+        when(entityManagerFactory.getCache()).thenReturn(secondLevelCache);
+        when(secondLevelCache.contains(eq(Faculty.class), any()))
+                .thenAnswer(invocation -> Long.valueOf(1L).equals(invocation.getArgument(1)));
+        when(facultyRepository.findById(1L)).thenReturn(Optional.of(testFaculty));
+        when(facultyRepository.findAllById(List.of(2L, 3L))).thenReturn(List.of(ravenclaw));
+
+        // when
+        BatchResult<Faculty> result = facultyService.findFaculties(List.of(2L, 3L, 1L));
+
+        // then
+        assertEquals(List.of(ravenclaw, testFaculty), result.items());
+        assertEquals(List.of(3L), result.missingIds());
+        verify(facultyRepository, never()).findById(2L);
+    }
+
+    @Test
+    void findFacultyVersion_shouldReadProjectionWhenNotCached() {
+        // given
+        secondLevelCacheHolding();
+        VersionStamp stamp = new VersionStamp(2L, Instant.parse("2024-09-01T10:00:00Z"));
+        when(facultyRepository.findVersionById(1L)).thenReturn(Optional.of(stamp));
+
+        // when
+        Optional<VersionStamp> result = facultyService.findFacultyVersion(1L);
+
+        // then
+        assertEquals(Optional.of(stamp), result);
+        verify(facultyRepository, never()).findById(any());
+    }
+
+    @Test
+    void patchFaculty_shouldReadBeforeStateAsProjectionWhenNotCached() {
+        // given
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        Cache secondLevelCache = mock(Cache.class);
+        when(entityManager.getEntityManagerFactory()).thenReturn(entityManagerFactory);
+        when(entityManagerFactory.getCache()).thenReturn(secondLevelCache);
+        FacultyPatch patch = new FacultyPatch(null, "Scarlet");
+        when(facultyRepository.findSnapshotByIdAndVersion(1L, 0L))
+                .thenReturn(Optional.of(new FacultySnapshot(1L, "Gryffindor", "Red")));
+        when(facultyRepository.patch(1L, 0L, patch)).thenReturn(1);
+
+        // when
+        PatchResult result = facultyService.patchFaculty(1L, 0L, patch);
+
+        // then
+        assertEquals(PatchResult.updated(1L), result);
+        verify(facultyRepository, never()).findById(any());
+        verify(eventPublisher).publishEvent(new FacultyChangedEvent(
+                new FacultySnapshot(1L, "Gryffindor", "Red"),
+                new FacultySnapshot(1L, "Gryffindor", "Scarlet")));
+    }
+
+    @Test
+    void patchFaculty_shouldReportConflictWhenConcurrentUpdateWins() {
+        // given
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        Cache secondLevelCache = mock(Cache.class);
+        when(entityManager.getEntityManagerFactory()).thenReturn(entityManagerFactory);
+        when(entityManagerFactory.getCache()).thenReturn(secondLevelCache);
+        FacultyPatch patch = new FacultyPatch("Гриффиндор", null);
+        when(facultyRepository.findSnapshotByIdAndVersion(1L, 0L))
+                .thenReturn(Optional.of(new FacultySnapshot(1L, "Gryffindor", "Red")));
+        when(facultyRepository.patch(1L, 0L, patch)).thenReturn(0);
+
+        // when
+        PatchResult result = facultyService.patchFaculty(1L, 0L, patch);
+
+        // then
+        assertEquals(PatchResult.conflict(), result);
+        verify(facultyRepository, never()).existsById(any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void patchFaculty_shouldReportTakenNameAndColorAsDuplicate() {
+        // given
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        Cache secondLevelCache = mock(Cache.class);
+        when(entityManager.getEntityManagerFactory()).thenReturn(entityManagerFactory);
+        when(entityManagerFactory.getCache()).thenReturn(secondLevelCache);
+        FacultyPatch patch = new FacultyPatch("Slytherin", "Green");
+        when(facultyRepository.findSnapshotByIdAndVersion(1L, 0L))
+                .thenReturn(Optional.of(new FacultySnapshot(1L, "Gryffindor", "Red")));
+        when(facultyRepository.patch(1L, 0L, patch)).thenThrow(new DataIntegrityViolationException(
+                "could not execute statement", new SQLException("constraint violated", "23505")));
+
+        // when & then
+        assertThrows(DuplicateKeyException.class, () -> facultyService.patchFaculty(1L, 0L, patch));
+        verifyNoInteractions(eventPublisher);
+    }
+
     @Test
     void findFaculty_shouldReturnEmptyWhenNotExists() {
         // given
@@ -102,30 +274,125 @@ class FacultyServiceTest {
     @Test
     void deleteFaculty_shouldReturnTrueWhenExists() {
         // given
-        when(facultyRepository.existsById(1L)).thenReturn(true);
-        doNothing().when(facultyRepository).deleteById(1L);
+        when(facultyRepository.findById(1L)).thenReturn(Optional.of(testFaculty));
 
         // when
-        boolean result = facultyService.deleteFaculty(1L);
+        boolean result = facultyService.deleteFaculty(1L, FacultyDeleteMode.CASCADE, null);
 
         // then
         assertTrue(result);
-        verify(facultyRepository, times(1)).existsById(1L);
-        verify(facultyRepository, times(1)).deleteById(1L);
+        verify(facultyRepository, times(1)).delete(testFaculty);
+        verify(eventPublisher, times(1)).publishEvent(FacultyChangedEvent.deleted(testFaculty));
     }
 
     @Test
     void deleteFaculty_shouldReturnFalseWhenNotExists() {
         // given
-        when(facultyRepository.existsById(999L)).thenReturn(false);
+        when(facultyRepository.findById(999L)).thenReturn(Optional.empty());
 
         // when
-        boolean result = facultyService.deleteFaculty(999L);
+        boolean result = facultyService.deleteFaculty(999L, FacultyDeleteMode.CASCADE, null);
 
         // then
         assertFalse(result);
-        verify(facultyRepository, times(1)).existsById(999L);
-        verify(facultyRepository, never()).deleteById(any());
+        verify(facultyRepository, never()).delete(any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void deleteFaculty_shouldCascadeToStudentsWithSetBasedDeletes() {
+        // given
+        List<StudentSnapshot> students = List.of(
+                new StudentSnapshot(1L, "Гарри Поттер", 17, 1L),
+                new StudentSnapshot(2L, "Гермиона Грейнджер", 17, 1L));
+        when(facultyRepository.findById(1L)).thenReturn(Optional.of(testFaculty));
+        when(studentRepository.findSnapshotsByFacultyId(1L)).thenReturn(students);
+        List<AvatarDto> avatars = List.of(new AvatarDto(10L, "10.png", 3, "image/png", 1L, 0L, null));
+        when(avatarRepository.findDtosByStudentFacultyId(1L)).thenReturn(avatars);
+
+        // when
+        boolean result = facultyService.deleteFaculty(1L, FacultyDeleteMode.CASCADE, null);
+
+        // then
+        assertTrue(result);
+        InOrder order = inOrder(avatarDataRepository, avatarRepository, studentRepository, facultyRepository);
+        order.verify(avatarDataRepository).deleteInBulkByStudentFacultyId(1L);
+        order.verify(avatarRepository).deleteInBulkByStudentFacultyId(1L);
+        order.verify(studentRepository).deleteInBulkByFacultyId(1L);
+        order.verify(facultyRepository).delete(testFaculty);
+        verify(studentCache).evictFaculty(1L);
+        verify(eventPublisher).publishEvent(new StudentsDeletedEvent(1L, students));
+        verify(avatarService).deleteFilesAfterCommit(avatars);
+    }
+
+    @Test
+    void deleteFaculty_shouldReassignStudentsWithOneUpdate() {
+        // given
+        Faculty ravenclaw = new Faculty(2L, "Ravenclaw", "Blue");
+        when(facultyRepository.findById(1L)).thenReturn(Optional.of(testFaculty));
+        when(facultyRepository.findById(2L)).thenReturn(Optional.of(ravenclaw));
+        when(studentRepository.moveInBulkByFacultyId(eq(1L), same(ravenclaw), any())).thenReturn(3);
+
+        // when
+        boolean result = facultyService.deleteFaculty(1L, FacultyDeleteMode.REASSIGN, 2L);
+
+        // then
+        assertTrue(result);
+        verify(studentRepository, never()).deleteInBulkByFacultyId(any());
+        verify(facultyRepository).delete(testFaculty);
+        verify(eventPublisher).publishEvent(new StudentsMovedEvent(1L, 2L, 3));
+    }
+
+    @Test
+    void deleteFaculty_shouldRejectReassignToMissingFacultyBeforeChangingAnything() {
+        // given
+        when(facultyRepository.findById(9L)).thenReturn(Optional.empty());
+
+        // when & then
+        assertThrows(IllegalArgumentException.class,
+                () -> facultyService.deleteFaculty(1L, FacultyDeleteMode.REASSIGN, 9L));
+        verifyNoInteractions(studentRepository);
+        verify(facultyRepository, never()).delete(any());
+    }
+
+    @Test
+    void moveStudents_shouldReturnEmptyWhenSourceFacultyDoesNotExist() {
+        // given
+        when(facultyRepository.findById(2L)).thenReturn(Optional.of(new Faculty(2L, "Ravenclaw", "Blue")));
+        when(facultyRepository.findById(9L)).thenReturn(Optional.empty());
+
+        // when
+        Optional<Integer> result = facultyService.moveStudents(9L, 2L);
+
+        // then
+        assertTrue(result.isEmpty());
+        verifyNoInteractions(studentRepository);
+    }
+
+    @Test
+    void getFacultyStats_shouldServeFromMemoryOnceSeeded() {
+        // given
+        List<FacultyStats> stats = List.of(new FacultyStats(1L, 3L, 17.0, 16, 18));
+        when(facultyAgeStats.isReady()).thenReturn(true);
+        when(facultyAgeStats.getStats()).thenReturn(stats);
+
+        // when
+        List<FacultyStats> result = facultyService.getFacultyStats();
+
+        // then
+        assertEquals(stats, result);
+        verifyNoInteractions(studentRepository);
+    }
+
+    @Test
+    void getFacultyStats_shouldFallBackToGroupedQuery() {
+        // given
+        List<FacultyStats> stats = List.of(new FacultyStats(1L, 3L, 17.0, 16, 18));
+        when(facultyAgeStats.isReady()).thenReturn(false);
+        when(studentRepository.findFacultyStats()).thenReturn(stats);
+
+        // when & then
+        assertEquals(stats, facultyService.getFacultyStats());
     }
 
     @Test
@@ -159,32 +426,112 @@ class FacultyServiceTest {
     }
 
     @Test
-    void getLongestFacultyName_shouldReturnLongestName() {
+    void getFacultiesByNameOrColor_shouldLoadOnlyIndexedIds() {
         // given
-        Faculty faculty1 = new Faculty(1L, "Гриффиндор", "Красный");
-        Faculty faculty2 = new Faculty(2L, "Слизерин", "Зеленый");
-        Faculty faculty3 = new Faculty(3L, "Когтевран", "Синий");
+        Faculty stale = new Faculty(2L, "Слизерин", "Green");
+        when(facultyLookupIndex.isReady()).thenReturn(true);
+        when(facultyLookupIndex.idsByNameOrColor("red")).thenReturn(List.of(1L, 2L));
+        secondLevelCacheHolding(2L);
+        when(facultyRepository.findById(2L)).thenReturn(Optional.of(stale));
+        when(facultyRepository.findAllById(List.of(1L))).thenReturn(List.of(testFaculty));
 
-        when(facultyRepository.findAll()).thenReturn(List.of(faculty1, faculty2, faculty3));
+        // when
+        List<Faculty> result = facultyService.getFacultiesByNameOrColor("red");
+
+        // then
+        assertEquals(List.of(testFaculty), result);
+        verify(facultyRepository, never()).findById(1L);
+        verify(facultyRepository, never()).findByNameIgnoreCaseOrColorIgnoreCase(any(), any());
+    }
+
+    @Test
+    void getFacultiesByColor_shouldSkipQueryWhenIndexHasNoMatch() {
+        // given
+        when(facultyLookupIndex.isReady()).thenReturn(true);
+        when(facultyLookupIndex.idsByColor("Violet")).thenReturn(List.of());
+
+        // when
+        List<Faculty> result = facultyService.getFacultiesByColor("Violet");
+
+        // then
+        assertTrue(result.isEmpty());
+        verifyNoInteractions(facultyRepository);
+    }
+
+    @Test
+    void getLongestFacultyName_shouldServeHeldValueWithoutQuery() {
+        // given
+        when(longestFacultyName.isReady()).thenReturn(true);
+        when(longestFacultyName.get()).thenReturn("Гриффиндор");
+
+        // when
+        String result = facultyService.getLongestFacultyName();
+
+        // then
+        assertEquals("Гриффиндор", result);
+        verifyNoInteractions(facultyRepository);
+    }
+
+    @Test
+    void getLongestFacultyName_shouldQueryDatabaseUntilHolderIsLoaded() {
+        // given
+        FacultyIdName longest = mock(FacultyIdName.class);
+        when(longest.getName()).thenReturn("Гриффиндор");
+        when(facultyRepository.findLongestFaculty()).thenReturn(Optional.of(longest));
 
         // when
         String result = facultyService.getLongestFacultyName();
 
         // then
         assertEquals("Гриффиндор", result);
-        verify(facultyRepository, times(1)).findAll();
+        verify(facultyRepository, never()).findAll();
     }
 
     @Test
     void getLongestFacultyName_shouldReturnEmptyWhenNoFaculties() {
         // given
-        when(facultyRepository.findAll()).thenReturn(List.of());
+        when(facultyRepository.findLongestFaculty()).thenReturn(Optional.empty());
 
         // when
         String result = facultyService.getLongestFacultyName();
 
         // then
         assertEquals("", result);
-        verify(facultyRepository, times(1)).findAll();
     }
-}
\ No newline at end of file
+
+    @Test
+    void getFacultyStudents_shouldSkipEmptyJoinRowOfFacultyWithoutStudents() {
+        // given
+        FacultyRosterRow emptyRow = mock(FacultyRosterRow.class);
+        when(emptyRow.getStudentId()).thenReturn(null);
+        when(facultyRepository.findRoster(1L)).thenReturn(List.of(emptyRow));
+
+        // when
+        Optional<List<StudentDto>> result = facultyService.getFacultyStudents(1L);
+
+        // then
+        assertTrue(result.isPresent());
+        assertTrue(result.get().isEmpty());
+    }
+
+    @Test
+    void getFacultyStudents_shouldReturnEmptyWhenFacultyNotExists() {
+        // given
+        when(facultyRepository.findRoster(999L)).thenReturn(List.of());
+
+        // when
+        Optional<List<StudentDto>> result = facultyService.getFacultyStudents(999L);
+
+        // then
+        assertFalse(result.isPresent());
+    }
+
+    private void secondLevelCacheHolding(Long... ids) {
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        Cache secondLevelCache = mock(Cache.class);
+        when(entityManager.getEntityManagerFactory()).thenReturn(entityManagerFactory);
+        when(entityManagerFactory.getCache()).thenReturn(secondLevelCache);
+        when(secondLevelCache.contains(eq(Faculty.class), any()))
+                .thenAnswer(invocation -> List.of(ids).contains(invocation.<Long>getArgument(1)));
+    }
+}
@@ -0,0 +1,148 @@
+package ru.hogwarts.school.service;
+
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DuplicateKeyException;
+import ru.hogwarts.school.batch.StudentBatchEngine;
+import ru.hogwarts.school.cache.StudentCache;
+import ru.hogwarts.school.dto.StudentPatch;
+import ru.hogwarts.school.index.StudentAgeIndex;
+import ru.hogwarts.school.index.StudentNameIndex;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.stats.StudentAggregates;
+
+import javax.validation.Validator;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Saves students the way the controllers receive them: with a faculty that carries only its id.
+ */
+@DataJpaTest(properties = {
+        "spring.liquibase.enabled=false",
+        "spring.sql.init.mode=never"
+})
+@Import({StudentService.class, StudentCache.class})
+class StudentFacultyReferenceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private StudentService studentService;
+
+    @MockBean
+    private StudentAggregates studentAggregates;
+
+    @MockBean
+    private StudentAgeIndex studentAgeIndex;
+
+    @MockBean
+    private StudentNameIndex studentNameIndex;
+
+    @MockBean
+    private StudentBatchEngine studentBatchEngine;
+
+    @MockBean
+    private Validator validator;
+
+    private Faculty gryffindor;
+    private Faculty ravenclaw;
+
+    @BeforeEach
+    void setUp() {
+        gryffindor = entityManager.persist(new Faculty(null, "Gryffindor", "Red"));
+        ravenclaw = entityManager.persist(new Faculty(null, "Ravenclaw", "Blue"));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void createStudent_shouldResolveFacultyReferencedById() {
+        // when
+        Student created = studentService.createStudent(new Student(null, "Гарри Поттер", 17, reference(gryffindor)));
+        entityManager.flush();
+        entityManager.clear();
+
+        // then
+        assertEquals("Gryffindor", created.getFaculty().getName());
+        assertEquals(gryffindor.getId(), entityManager.find(Student.class, created.getId()).getFaculty().getId());
+    }
+
+    @Test
+    void editStudent_shouldResolveFacultyReferencedById() {
+        // given
+        Student harry = entityManager.persistFlushFind(new Student(null, "Гарри Поттер", 17, gryffindor));
+        entityManager.clear();
+
+        // when
+        Student edited = studentService.editStudent(harry.getId(),
+                new Student(null, "Гарри Поттер", 18, reference(ravenclaw))).orElseThrow();
+        entityManager.clear();
+
+        // then
+        assertEquals("Ravenclaw", edited.getFaculty().getName());
+        assertEquals(ravenclaw.getId(), entityManager.find(Student.class, harry.getId()).getFaculty().getId());
+    }
+
+    @Test
+    void findStudent_shouldCacheStudentWithFacultyLoaded() {
+        // given
+        Student harry = entityManager.persistFlushFind(new Student(null, "Гарри Поттер", 17, gryffindor));
+        entityManager.clear();
+
+        // when
+        Student found = studentService.findStudent(harry.getId()).orElseThrow();
+        entityManager.clear();
+
+        // then
+        assertTrue(Hibernate.isInitialized(found.getFaculty()));
+        assertEquals("Gryffindor", found.getFaculty().getName());
+    }
+
+    @Test
+    void createStudent_shouldRejectUnknownFaculty() {
+        // given
+        Faculty unknown = new Faculty();
+        unknown.setId(-1L);
+
+        // when & then
+        assertThrows(IllegalArgumentException.class,
+                () -> studentService.createStudent(new Student(null, "Гарри Поттер", 17, unknown)));
+    }
+
+    @Test
+    void patchStudent_shouldReportTakenNameAsDuplicate() {
+        // given
+        entityManager.persist(new Student(null, "Рон Уизли", 17, gryffindor));
+        Student harry = entityManager.persistFlushFind(new Student(null, "Гарри Поттер", 17, gryffindor));
+
+        // when & then
+        assertThrows(DuplicateKeyException.class, () -> studentService.patchStudent(
+                harry.getId(), harry.getVersion(), new StudentPatch("Рон Уизли", 18, null)));
+    }
+
+    @Test
+    void patchStudent_shouldRejectFacultyThatDoesNotExist() {
+        // given
+        Student harry = entityManager.persistFlushFind(new Student(null, "Гарри Поттер", 17, gryffindor));
+
+        // when & then
+        assertThrows(IllegalArgumentException.class, () -> studentService.patchStudent(
+                harry.getId(), harry.getVersion(), new StudentPatch(null, null, Optional.of(-1L))));
+    }
+
+    private static Faculty reference(Faculty faculty) {
+        Faculty reference = new Faculty();
+        reference.setId(faculty.getId());
+        return reference;
+    }
+}
@@ -0,0 +1,153 @@
+package ru.hogwarts.school.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.hogwarts.school.dto.BulkImportResult;
+import ru.hogwarts.school.event.StudentChangedEvent;
+import ru.hogwarts.school.model.Student;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import javax.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StudentImportServiceTest {
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private StudentImportService studentImportService;
+
+    @BeforeEach
+    void setUp() {
+        studentImportService = new StudentImportService(entityManager, transactionManager,
+                Validation.buildDefaultValidatorFactory().getValidator(), new ObjectMapper(), eventPublisher, 2);
+    }
+
+    @Test
+    void importJson_shouldPersistValidRowsInBatchesAndReportInvalidOnes() throws Exception {
+        // given
+        String json = "[" +
+                "{\"name\":\"Гарри Поттер\",\"age\":17,\"facultyId\":1}," +
+                "{\"name\":\"\",\"age\":17}," +
+                "{\"name\":\"Рон Уизли\",\"age\":12}," +
+                "{\"name\":\"Луна Лавгуд\",\"age\":\"sixteen\"}," +
+                "{\"name\":\"Драко Малфой\"}," +
+                "{\"name\":\"Седрик Диггори\",\"age\":18}" +
+                "]";
+
+        // when
+        BulkImportResult result = studentImportService.importJson(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        // then
+        assertEquals(6, result.received());
+        assertEquals(3, result.imported());
+        assertEquals(List.of(2, 3, 4), result.errors().stream().map(e -> e.row()).toList());
+        assertEquals(List.of("Age must be at least 16"), result.errors().get(1).messages());
+        verify(entityManager, times(3)).persist(any(Student.class));
+        verify(entityManager, times(2)).flush();
+        verify(entityManager, times(1)).getReference(any(), eq(1L));
+        verify(eventPublisher, times(3)).publishEvent(any(StudentChangedEvent.class));
+    }
+
+    @Test
+    void importCsv_shouldSkipHeaderAndParseQuotedFields() throws Exception {
+        // given
+        String csv = "name,age,facultyId\n" +
+                "\"Уизли, Фред\",18,\n" +
+                "Джордж Уизли,abc,1\n";
+
+        // when
+        BulkImportResult result = studentImportService.importCsv(new StringReader(csv));
+
+        // then
+        assertEquals(2, result.received());
+        assertEquals(1, result.imported());
+        assertEquals(2, result.errors().get(0).row());
+        verify(entityManager).persist(argThat((Student s) -> s.getName().equals("Уизли, Фред") && s.getAge() == 18));
+    }
+
+    @Test
+    void importCsv_shouldRetryFailedBatchRowByRow() throws Exception {
+        // given
+        doAnswer(invocation -> {
+            if (invocation.<Student>getArgument(0).getName().equals("Гарри Поттер")) {
+                throw new PersistenceException("duplicate key value violates unique constraint");
+            }
+            return null;
+        }).when(entityManager).persist(any(Student.class));
+        String csv = "Гермиона Грейнджер,17\nГарри Поттер,17\n";
+
+        // when
+        BulkImportResult result = studentImportService.importCsv(new StringReader(csv));
+
+        // then
+        assertEquals(1, result.imported());
+        assertEquals(1, result.errors().size());
+        assertEquals("Гарри Поттер", result.errors().get(0).name());
+        assertEquals("duplicate key value violates unique constraint", result.errors().get(0).messages().get(0));
+        verify(entityManager, times(4)).persist(any(Student.class));
+    }
+
+    @Test
+    void importJson_shouldReportElementsThatAreNotObjectsAndKeepReading() throws Exception {
+        // given
+        String json = "[{\"name\":\"Гарри Поттер\",\"age\":17},42,[{\"name\":\"Рон Уизли\"}],\"Луна\"," +
+                "{\"name\":\"Седрик Диггори\",\"age\":18}]";
+
+        // when
+        BulkImportResult result = studentImportService.importJson(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        // then
+        assertEquals(5, result.received());
+        assertEquals(2, result.imported());
+        assertEquals(List.of(2, 3, 4), result.errors().stream().map(e -> e.row()).toList());
+        assertEquals(List.of("Expected a student object but found '42'"), result.errors().get(0).messages());
+    }
+
+    @Test
+    void importJson_shouldReportSyntaxErrorAndKeepRowsBeforeIt() throws Exception {
+        // given
+        String json = "[{\"name\":\"Гарри Поттер\",\"age\":17},{\"name\" \"Рон Уизли\"},{\"name\":\"Седрик Диггори\"}]";
+
+        // when
+        BulkImportResult result = studentImportService.importJson(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        // then
+        assertEquals(2, result.received());
+        assertEquals(1, result.imported());
+        assertEquals(2, result.errors().get(0).row());
+    }
+
+    @Test
+    void importJson_shouldRejectNonArrayBody() {
+        // when & then
+        assertThrows(IllegalArgumentException.class, () -> studentImportService.importJson(
+                new ByteArrayInputStream("{\"name\":\"Гарри Поттер\"}".getBytes(StandardCharsets.UTF_8))));
+    }
+}
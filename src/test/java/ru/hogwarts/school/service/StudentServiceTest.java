@@ -4,15 +4,52 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import ru.hogwarts.school.batch.BatchReport;
+import ru.hogwarts.school.batch.MergeOrder;
+import ru.hogwarts.school.batch.StudentBatchEngine;
+import ru.hogwarts.school.batch.WorkerPool;
+import ru.hogwarts.school.cache.StudentCache;
+import ru.hogwarts.school.dto.BatchResult;
+import ru.hogwarts.school.dto.KeysetPage;
+import ru.hogwarts.school.dto.PatchResult;
+import ru.hogwarts.school.dto.StudentDto;
+import ru.hogwarts.school.dto.StudentPatch;
+import ru.hogwarts.school.dto.VersionStamp;
+import ru.hogwarts.school.event.StudentChangedEvent;
+import ru.hogwarts.school.event.StudentRenamedEvent;
+import ru.hogwarts.school.event.StudentSnapshot;
+import ru.hogwarts.school.index.StudentAgeIndex;
+import ru.hogwarts.school.index.StudentNameIndex;
+import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
 import ru.hogwarts.school.repository.StudentRepository;
-
+import ru.hogwarts.school.stats.StudentAggregates;
+
+import javax.persistence.EntityManager;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -21,6 +58,30 @@ class StudentServiceTest {
     @Mock
     private StudentRepository studentRepository;
 
+    @Spy
+    private StudentCache studentCache = new StudentCache(100, Duration.ofMinutes(1));
+
+    @Mock
+    private StudentAggregates studentAggregates;
+
+    @Mock
+    private StudentAgeIndex studentAgeIndex;
+
+    @Mock
+    private StudentNameIndex studentNameIndex;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private StudentBatchEngine studentBatchEngine;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
     @InjectMocks
     private StudentService studentService;
 
@@ -46,12 +107,14 @@ class StudentServiceTest {
         assertNotNull(result);
         assertEquals("Harry Potter", result.getName());
         verify(studentRepository, times(1)).save(testStudent);
+        verify(eventPublisher, times(1)).publishEvent(StudentChangedEvent.created(testStudent));
+        assertTrue(studentCache.peek(1L).isEmpty());
     }
 
     @Test
     void findStudent_shouldReturnStudentWhenExists() {
         // given
-        when(studentRepository.findById(1L)).thenReturn(Optional.of(testStudent));
+        when(studentRepository.findWithFacultyById(1L)).thenReturn(Optional.of(testStudent));
 
         // when
         Optional<Student> result = studentService.findStudent(1L);
@@ -59,20 +122,268 @@ class StudentServiceTest {
         // then
         assertTrue(result.isPresent());
         assertEquals("Harry Potter", result.get().getName());
-        verify(studentRepository, times(1)).findById(1L);
+        verify(studentRepository, times(1)).findWithFacultyById(1L);
+    }
+
+    @Test
+    void findStudents_shouldLoadOnlyCacheMissesAndKeepRequestOrder() {
+        // given
+        studentCache.put(testStudents.get(0));
+        when(studentRepository.findWithFacultyByIdIn(List.of(3L, 99L))).thenReturn(List.of(testStudents.get(2)));
+
+        // when
+        BatchResult<Student> result = studentService.findStudents(List.of(3L, 1L, 99L, 3L));
+
+        // then
+        assertEquals(List.of("Рон Уизли", "Гарри Поттер"), result.items().stream().map(Student::getName).toList());
+        assertEquals(List.of(99L), result.missingIds());
+        verify(studentRepository, times(1)).findWithFacultyByIdIn(any());
+    }
+
+    @Test
+    void findStudents_shouldRejectTooManyIds() {
+        // given
+        List<Long> ids = LongStream.rangeClosed(1, IdBatches.MAX_IDS + 1).boxed().toList();
+
+        // when & then
+        assertThrows(IllegalArgumentException.class, () -> studentService.findStudents(ids));
+        verifyNoInteractions(studentRepository);
+    }
+
+    @Test
+    void patchStudent_shouldTakeBeforeStateFromCacheAndIssueOnlyTheUpdate() {
+        // given
+        Student cached = new Student(1L, "Гарри Поттер", 17);
+        cached.setVersion(3L);
+        studentCache.put(cached);
+        StudentPatch patch = new StudentPatch(null, 18, null);
+        when(studentRepository.patch(1L, 3L, patch)).thenReturn(1);
+
+        // when
+        PatchResult result = studentService.patchStudent(1L, 3L, patch);
+
+        // then
+        assertEquals(PatchResult.updated(4L), result);
+        assertTrue(studentCache.peek(1L).isEmpty());
+        verify(studentRepository, never()).findSnapshotByIdAndVersion(any(), anyLong());
+        verify(eventPublisher).publishEvent(new StudentChangedEvent(
+                new StudentSnapshot(1L, "Гарри Поттер", 17, null),
+                new StudentSnapshot(1L, "Гарри Поттер", 18, null)));
+    }
+
+    @Test
+    void patchStudent_shouldRenameWithOnlyTheUpdate() {
+        // given
+        StudentPatch patch = new StudentPatch("Гарри Джеймс Поттер", null, null);
+        when(studentRepository.patch(1L, 2L, patch)).thenReturn(1);
+
+        // when
+        PatchResult result = studentService.patchStudent(1L, 2L, patch);
+
+        // then
+        assertEquals(PatchResult.updated(3L), result);
+        verify(studentRepository, never()).findSnapshotByIdAndVersion(any(), anyLong());
+        verify(studentRepository, never()).existsById(any());
+        verify(eventPublisher).publishEvent(new StudentRenamedEvent(1L, "Гарри Джеймс Поттер"));
+    }
+
+    @Test
+    void patchStudent_shouldReportConflictWhenVersionIsStale() {
+        // given
+        StudentPatch patch = new StudentPatch("Гарри Джеймс Поттер", null, null);
+        when(studentRepository.patch(1L, 2L, patch)).thenReturn(0);
+        when(studentRepository.existsById(1L)).thenReturn(true);
+
+        // when
+        PatchResult result = studentService.patchStudent(1L, 2L, patch);
+
+        // then
+        assertEquals(PatchResult.conflict(), result);
+        verify(studentRepository, never()).findSnapshotByIdAndVersion(any(), anyLong());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void patchStudent_shouldReportConflictWithoutExistenceCheckWhenUpdateLosesRace() {
+        // given
+        StudentPatch patch = new StudentPatch(null, 18, null);
+        when(studentRepository.findSnapshotByIdAndVersion(1L, 2L))
+                .thenReturn(Optional.of(new StudentSnapshot(1L, "Гарри Поттер", 17, null)));
+        when(studentRepository.patch(1L, 2L, patch)).thenReturn(0);
+
+        // when
+        PatchResult result = studentService.patchStudent(1L, 2L, patch);
+
+        // then
+        assertEquals(PatchResult.conflict(), result);
+        verify(studentRepository, never()).existsById(any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void patchStudent_shouldReportTakenNameAsDuplicate() {
+        // given
+        StudentPatch patch = new StudentPatch("Рон Уизли", null, null);
+        when(studentRepository.patch(1L, 2L, patch)).thenThrow(integrityViolation("23505"));
+
+        // when & then
+        assertThrows(DuplicateKeyException.class, () -> studentService.patchStudent(1L, 2L, patch));
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void patchStudent_shouldRejectFacultyThatDoesNotExist() {
+        // given
+        StudentPatch patch = new StudentPatch(null, null, Optional.of(9L));
+        when(studentRepository.findSnapshotByIdAndVersion(1L, 2L))
+                .thenReturn(Optional.of(new StudentSnapshot(1L, "Гарри Поттер", 17, null)));
+        when(studentRepository.patch(1L, 2L, patch)).thenThrow(integrityViolation("23506"));
+
+        // when & then
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> studentService.patchStudent(1L, 2L, patch));
+        assertEquals("Faculty 9 does not exist", e.getMessage());
+    }
+
+    @Test
+    void patchStudent_shouldReportNotFoundForMissingStudent() {
+        // given
+        StudentPatch patch = new StudentPatch(null, null, Optional.empty());
+        when(studentRepository.findSnapshotByIdAndVersion(99L, 0L)).thenReturn(Optional.empty());
+        when(studentRepository.existsById(99L)).thenReturn(false);
+
+        // when
+        PatchResult result = studentService.patchStudent(99L, 0L, patch);
+
+        // then
+        assertEquals(PatchResult.notFound(), result);
+    }
+
+    @Test
+    void patchStudent_shouldRejectInvalidFieldsBeforeTouchingDatabase() {
+        // given
+        StudentPatch patch = new StudentPatch("", 12, null);
+
+        // when & then
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> studentService.patchStudent(1L, 0L, patch));
+        assertTrue(e.getMessage().contains("Age must be at least 16"));
+        verifyNoInteractions(studentRepository);
     }
 
     @Test
     void findStudent_shouldReturnEmptyWhenNotExists() {
         // given
-        when(studentRepository.findById(999L)).thenReturn(Optional.empty());
+        when(studentRepository.findWithFacultyById(999L)).thenReturn(Optional.empty());
 
         // when
         Optional<Student> result = studentService.findStudent(999L);
 
         // then
         assertTrue(result.isEmpty());
-        verify(studentRepository, times(1)).findById(999L);
+        verify(studentRepository, times(1)).findWithFacultyById(999L);
+    }
+
+    @Test
+    void findStudent_shouldServeRepeatedReadsFromCache() {
+        // given
+        when(studentRepository.findWithFacultyById(1L)).thenReturn(Optional.of(testStudent));
+
+        // when
+        studentService.findStudent(1L);
+        Optional<Student> result = studentService.findStudent(1L);
+
+        // then
+        assertTrue(result.isPresent());
+        verify(studentRepository, times(1)).findWithFacultyById(1L);
+        assertEquals(1, studentService.getCacheStatistics().hits());
+    }
+
+    @Test
+    void findStudentVersion_shouldUseCachedStudentWithoutQuery() {
+        // given
+        Student cached = new Student(1L, "Harry Potter", 17);
+        cached.setVersion(3L);
+        cached.setLastModified(Instant.parse("2024-09-01T10:00:00Z"));
+        studentCache.put(cached);
+
+        // when
+        Optional<VersionStamp> result = studentService.findStudentVersion(1L);
+
+        // then
+        assertEquals(Optional.of(new VersionStamp(3L, Instant.parse("2024-09-01T10:00:00Z"))), result);
+        verify(studentRepository, never()).findVersionById(any());
+    }
+
+    @Test
+    void findStudentVersion_shouldCoverFacultyOfCachedStudent() {
+        // given
+        Faculty faculty = new Faculty(2L, "Гриффиндор", "Красный");
+        faculty.setVersion(5L);
+        faculty.setLastModified(Instant.parse("2024-09-02T10:00:00Z"));
+        Student cached = new Student(1L, "Harry Potter", 17, faculty);
+        cached.setVersion(3L);
+        cached.setLastModified(Instant.parse("2024-09-01T10:00:00Z"));
+        studentCache.put(cached);
+
+        // when
+        VersionStamp result = studentService.findStudentVersion(1L).orElseThrow();
+
+        // then
+        assertEquals("\"3-5\"", result.tag());
+        assertEquals(Instant.parse("2024-09-02T10:00:00Z"), result.lastModified());
+    }
+
+    @Test
+    void findStudentVersion_shouldQueryStampOnCacheMiss() {
+        // given
+        VersionStamp stamp = new VersionStamp(1L, Instant.parse("2024-09-01T10:00:00Z"));
+        when(studentRepository.findVersionById(2L)).thenReturn(Optional.of(stamp));
+
+        // when
+        Optional<VersionStamp> result = studentService.findStudentVersion(2L);
+
+        // then
+        assertEquals(Optional.of(stamp), result);
+        verify(studentRepository, never()).findById(any());
+    }
+
+    @Test
+    void editStudent_shouldEvictCachedStudent() {
+        // given
+        Student updatedStudent = new Student(1L, "Harry James Potter", 18);
+        when(studentRepository.findById(1L)).thenReturn(Optional.of(testStudent));
+        when(studentRepository.findWithFacultyById(1L)).thenReturn(Optional.of(testStudent));
+        when(studentRepository.save(any(Student.class))).thenReturn(updatedStudent);
+        studentService.findStudent(1L);
+
+        // when
+        studentService.editStudent(1L, updatedStudent);
+        Optional<Student> result = studentService.findStudent(1L);
+
+        // then
+        assertEquals("Harry James Potter", result.get().getName());
+        verify(studentRepository, times(1)).findById(1L);
+        verify(studentRepository, times(2)).findWithFacultyById(1L);
+    }
+
+    @Test
+    void deleteStudent_shouldEvictCachedStudent() {
+        // given
+        when(studentRepository.findById(1L)).thenReturn(Optional.of(testStudent));
+        when(studentRepository.findWithFacultyById(1L))
+                .thenReturn(Optional.of(testStudent))
+                .thenReturn(Optional.empty());
+        studentService.findStudent(1L);
+
+        // when
+        studentService.deleteStudent(1L);
+        Optional<Student> result = studentService.findStudent(1L);
+
+        // then
+        assertTrue(result.isEmpty());
+        verify(studentRepository, times(1)).findById(1L);
+        verify(studentRepository, times(2)).findWithFacultyById(1L);
     }
 
     @Test
@@ -111,30 +422,32 @@ class StudentServiceTest {
     @Test
     void deleteStudent_shouldReturnTrueWhenExists() {
         // given
-        when(studentRepository.existsById(1L)).thenReturn(true);
-        doNothing().when(studentRepository).deleteById(1L);
+        when(studentRepository.findById(1L)).thenReturn(Optional.of(testStudent));
+        doNothing().when(studentRepository).delete(testStudent);
 
         // when
         boolean result = studentService.deleteStudent(1L);
 
         // then
         assertTrue(result);
-        verify(studentRepository, times(1)).existsById(1L);
-        verify(studentRepository, times(1)).deleteById(1L);
+        verify(studentRepository, times(1)).findById(1L);
+        verify(studentRepository, times(1)).delete(testStudent);
+        verify(eventPublisher, times(1)).publishEvent(StudentChangedEvent.deleted(testStudent));
     }
 
     @Test
     void deleteStudent_shouldReturnFalseWhenNotExists() {
         // given
-        when(studentRepository.existsById(999L)).thenReturn(false);
+        when(studentRepository.findById(999L)).thenReturn(Optional.empty());
 
         // when
         boolean result = studentService.deleteStudent(999L);
 
         // then
         assertFalse(result);
-        verify(studentRepository, times(1)).existsById(999L);
-        verify(studentRepository, never()).deleteById(any());
+        verify(studentRepository, times(1)).findById(999L);
+        verify(studentRepository, never()).delete(any());
+        verify(eventPublisher, never()).publishEvent(any());
     }
 
     @Test
@@ -165,6 +478,25 @@ class StudentServiceTest {
         verify(studentRepository, times(1)).findByAgeBetween(16, 18);
     }
 
+    @Test
+    void getStudentsByAgeBetween_shouldResolveIdsFromIndexWhenReady() {
+        // given
+        Student stale = new Student(7L, "Седрик Диггори", 19);
+        when(studentAgeIndex.isReady()).thenReturn(true);
+        when(studentAgeIndex.idsBetween(16, 17)).thenReturn(new long[]{5L, 7L, 1L});
+        when(studentRepository.findAllById(List.of(5L, 7L, 1L)))
+                .thenReturn(List.of(testStudents.get(4), stale, testStudents.get(0)));
+
+        // when
+        List<Student> result = studentService.getStudentsByAgeBetween(16, 17);
+
+        // then
+        assertEquals(2, result.size());
+        assertEquals(1L, result.get(0).getId());
+        assertEquals(5L, result.get(1).getId());
+        verify(studentRepository, never()).findByAgeBetween(anyInt(), anyInt());
+    }
+
     @Test
     void getTotalCount_shouldReturnStudentCount() {
         // given
@@ -178,6 +510,20 @@ class StudentServiceTest {
         verify(studentRepository, times(1)).countAllStudents();
     }
 
+    @Test
+    void getTotalCount_shouldUseAggregatesWhenReady() {
+        // given
+        when(studentAggregates.isReady()).thenReturn(true);
+        when(studentAggregates.getCount()).thenReturn(9);
+
+        // when
+        Integer result = studentService.getTotalCount();
+
+        // then
+        assertEquals(9, result);
+        verify(studentRepository, never()).countAllStudents();
+    }
+
     @Test
     void getAverageAge_shouldReturnAverageAge() {
         // given
@@ -220,71 +566,92 @@ class StudentServiceTest {
     }
 
     @Test
-    void printStudentsParallel_shouldPrintSixStudents() {
+    void searchStudents_shouldLoadRankedPageFromNameIndex() {
         // given
-        when(studentRepository.findAll()).thenReturn(testStudents);
+        when(studentNameIndex.isReady()).thenReturn(true);
+        when(studentNameIndex.search("гер", 20, 20))
+                .thenReturn(new StudentNameIndex.SearchResult(new long[]{4L, 2L}, 22));
+        when(studentRepository.findDtosByIdIn(List.of(4L, 2L))).thenReturn(List.of(
+                new StudentDto(2L, "Гермиона Грейнджер", 17, 1L),
+                new StudentDto(4L, "Гер", 16, null)));
 
         // when
-        studentService.printStudentsParallel();
+        Page<StudentDto> result = studentService.searchStudents("гер", 1, 20);
 
         // then
-        verify(studentRepository, times(1)).findAll();
+        assertEquals(List.of(4L, 2L), result.getContent().stream().map(StudentDto::id).toList());
+        assertEquals(22, result.getTotalElements());
+        verify(studentRepository, never()).findByNameContainingIgnoreCase(any(), any());
     }
 
     @Test
-    void printStudentsSynchronized_shouldPrintSixStudents() {
+    void searchStudents_shouldRejectBlankQuery() {
+        // when & then
+        assertThrows(IllegalArgumentException.class, () -> studentService.searchStudents("  ", 0, 20));
+        verifyNoInteractions(studentNameIndex);
+    }
+
+    @Test
+    void getStudentsAfter_shouldReturnNextCursorWhenPageIsFull() {
         // given
-        when(studentRepository.findAll()).thenReturn(testStudents);
+        when(studentRepository.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 2)))
+                .thenReturn(testStudents.subList(0, 2));
 
         // when
-        studentService.printStudentsSynchronized();
+        KeysetPage<Student> result = studentService.getStudentsAfter(0L, 2);
 
         // then
-        verify(studentRepository, times(1)).findAll();
+        assertEquals(2, result.items().size());
+        assertEquals(2L, result.nextCursor());
     }
 
     @Test
-    void printStudentsParallel_shouldHandleInsufficientStudents() {
+    void getStudentsAfter_shouldReturnNoCursorOnLastPage() {
         // given
-        List<Student> insufficientStudents = List.of(
-                new Student(1L, "Гарри Поттер", 17),
-                new Student(2L, "Гермиона Грейнджер", 17)
-        );
-        when(studentRepository.findAll()).thenReturn(insufficientStudents);
+        when(studentRepository.findByIdGreaterThanOrderByIdAsc(4L, PageRequest.of(0, 10)))
+                .thenReturn(testStudents.subList(4, 6));
 
         // when
-        studentService.printStudentsParallel();
+        KeysetPage<Student> result = studentService.getStudentsAfter(4L, 10);
 
         // then
-        verify(studentRepository, times(1)).findAll();
+        assertEquals(2, result.items().size());
+        assertNull(result.nextCursor());
     }
 
     @Test
-    void printStudentsSynchronized_shouldHandleInsufficientStudents() {
+    void forEachStudent_shouldVisitAndDetachEveryStudent() {
         // given
-        List<Student> insufficientStudents = List.of(
-                new Student(1L, "Гарри Поттер", 17),
-                new Student(2L, "Гермиона Грейнджер", 17)
-        );
-        when(studentRepository.findAll()).thenReturn(insufficientStudents);
+        when(studentRepository.streamAllOrderedById()).thenReturn(testStudents.stream());
+        List<String> visited = new ArrayList<>();
 
         // when
-        studentService.printStudentsSynchronized();
+        studentService.forEachStudent(student -> visited.add(student.getName()));
 
         // then
-        verify(studentRepository, times(1)).findAll();
+        assertEquals(6, visited.size());
+        verify(entityManager, times(6)).detach(any(Student.class));
     }
 
     @Test
-    void printStudentNameSync_shouldBeSynchronized() {
-        // This test verifies that the method exists and can be called
-        // Note: Testing synchronization behavior is complex in unit tests
+    void printStudents_shouldRunNameTaskOverStreamedStudents() {
+        // given
+        Stream<StudentDto> students = Stream.of(new StudentDto(1L, "Гарри Поттер", 17, null));
+        BatchReport report = new BatchReport("print-names", WorkerPool.FIXED, MergeOrder.ORDERED,
+                1, 1, 1.0, 1000.0, List.of());
+        when(studentRepository.streamAllAsDto()).thenReturn(students);
+        when(studentBatchEngine.run(eq("print-names"), same(students), any(), eq(WorkerPool.FIXED),
+                eq(MergeOrder.ORDERED), any())).thenReturn(report);
 
         // when
-        studentService.printStudentNameSync("Test Student");
+        BatchReport result = studentService.printStudents(WorkerPool.FIXED, MergeOrder.ORDERED);
+
+        // then
+        assertSame(report, result);
+    }
 
-        // then - no exception should be thrown
-        // The method should execute successfully
-        assertTrue(true); // Simple assertion to mark test as passed
+    private static DataIntegrityViolationException integrityViolation(String sqlState) {
+        return new DataIntegrityViolationException("could not execute statement",
+                new SQLException("constraint violated", sqlState));
     }
-}
\ No newline at end of file
+}
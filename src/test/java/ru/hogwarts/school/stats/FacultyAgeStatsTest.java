@@ -0,0 +1,122 @@
+package ru.hogwarts.school.stats;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.hogwarts.school.dto.FacultyStats;
+import ru.hogwarts.school.event.StudentChangedEvent;
+import ru.hogwarts.school.event.StudentSnapshot;
+import ru.hogwarts.school.event.StudentsDeletedEvent;
+import ru.hogwarts.school.event.StudentsMovedEvent;
+import ru.hogwarts.school.repository.FacultyAgeCount;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FacultyAgeStatsTest {
+
+    @Mock
+    private StudentRepository studentRepository;
+
+    @Spy
+    private StudentCommitGate commitGate = new StudentCommitGate();
+
+    @InjectMocks
+    private FacultyAgeStats facultyAgeStats;
+
+    @Test
+    void reconcile_shouldBuildStatsFromGroupedRows() {
+        // given
+        seed(row(1L, 17, 2), row(1L, 19, 1), row(2L, 16, 4));
+
+        // then
+        assertTrue(facultyAgeStats.isReady());
+        assertEquals(List.of(
+                new FacultyStats(1L, 3L, 53.0 / 3, 17, 19),
+                new FacultyStats(2L, 4L, 16.0, 16, 16)), facultyAgeStats.getStats());
+    }
+
+    @Test
+    void onStudentChanged_shouldMoveStudentBetweenFacultiesAndKeepMinAndMax() {
+        // given
+        seed(row(1L, 17, 1), row(1L, 19, 1));
+
+        // when
+        facultyAgeStats.onStudentChanged(new StudentChangedEvent(
+                new StudentSnapshot(5L, "Драко Малфой", 19, 1L), new StudentSnapshot(5L, "Драко Малфой", 20, 2L)));
+        facultyAgeStats.onStudentChanged(new StudentChangedEvent(
+                null, new StudentSnapshot(6L, "Луна Лавгуд", 16, 1L)));
+
+        // then
+        assertEquals(List.of(
+                new FacultyStats(1L, 2L, 16.5, 16, 17),
+                new FacultyStats(2L, 1L, 20.0, 20, 20)), facultyAgeStats.getStats());
+    }
+
+    @Test
+    void onStudentsMoved_shouldMergeFacultyIntoTarget() {
+        // given
+        seed(row(1L, 17, 2), row(2L, 19, 1));
+
+        // when
+        facultyAgeStats.onStudentsMoved(new StudentsMovedEvent(1L, 2L, 2));
+
+        // then
+        assertEquals(List.of(new FacultyStats(2L, 3L, 53.0 / 3, 17, 19)), facultyAgeStats.getStats());
+    }
+
+    @Test
+    void onStudentsDeleted_shouldDropFacultyWithoutStudents() {
+        // given
+        seed(row(1L, 17, 1), row(1L, 18, 1), row(2L, 19, 1));
+
+        // when
+        facultyAgeStats.onStudentsDeleted(new StudentsDeletedEvent(1L, List.of(
+                new StudentSnapshot(1L, "Гарри Поттер", 17, 1L),
+                new StudentSnapshot(2L, "Рон Уизли", 18, 1L))));
+
+        // then
+        assertEquals(List.of(new FacultyStats(2L, 1L, 19.0, 19, 19)), facultyAgeStats.getStats());
+    }
+
+    @Test
+    void onStudentChanged_shouldBeIgnoredUntilSeeded() {
+        // when
+        facultyAgeStats.onStudentChanged(new StudentChangedEvent(
+                null, new StudentSnapshot(1L, "Гарри Поттер", 17, 1L)));
+
+        // then
+        assertFalse(facultyAgeStats.isReady());
+    }
+
+    private void seed(FacultyAgeCount... rows) {
+        when(studentRepository.countByFacultyAndAge()).thenReturn(List.of(rows));
+        facultyAgeStats.reconcile();
+    }
+
+    private static FacultyAgeCount row(long facultyId, int age, long count) {
+        return new FacultyAgeCount() {
+            @Override
+            public long getFacultyId() {
+                return facultyId;
+            }
+
+            @Override
+            public int getAge() {
+                return age;
+            }
+
+            @Override
+            public long getStudentCount() {
+                return count;
+            }
+        };
+    }
+}
@@ -0,0 +1,85 @@
+package ru.hogwarts.school.stats;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.hogwarts.school.event.FacultyChangedEvent;
+import ru.hogwarts.school.event.FacultySnapshot;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.repository.FacultyIdName;
+import ru.hogwarts.school.repository.FacultyRepository;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LongestFacultyNameTest {
+
+    @Mock
+    private FacultyRepository facultyRepository;
+
+    @InjectMocks
+    private LongestFacultyName longestFacultyName;
+
+    @Test
+    void onFacultyChanged_shouldTakeOverLongerNamesWithoutQuery() {
+        // given
+        load(1L, "Слизерин");
+
+        // when
+        longestFacultyName.onFacultyChanged(FacultyChangedEvent.created(new Faculty(2L, "Гриффиндор", "Красный")));
+        longestFacultyName.onFacultyChanged(FacultyChangedEvent.created(new Faculty(3L, "Когтевран", "Синий")));
+
+        // then
+        assertEquals("Гриффиндор", longestFacultyName.get());
+        verify(facultyRepository, times(1)).findLongestFaculty();
+    }
+
+    @Test
+    void onFacultyChanged_shouldKeepLowerIdOnEqualLength() {
+        // given
+        load(2L, "Слизерин");
+
+        // when
+        longestFacultyName.onFacultyChanged(FacultyChangedEvent.created(new Faculty(3L, "Пуффендуй", "Желтый")));
+        longestFacultyName.onFacultyChanged(FacultyChangedEvent.created(new Faculty(1L, "Пуффенду", "Желтый")));
+
+        // then
+        assertEquals("Пуффендуй", longestFacultyName.get());
+    }
+
+    @Test
+    void onFacultyChanged_shouldReloadWhenHolderIsDeletedOrShortened() {
+        // given
+        load(1L, "Гриффиндор");
+        FacultyIdName next = row(2L, "Слизерин");
+        when(facultyRepository.findLongestFaculty()).thenReturn(Optional.of(next));
+
+        // when
+        longestFacultyName.onFacultyChanged(new FacultyChangedEvent(
+                new FacultySnapshot(1L, "Гриффиндор", "Красный"),
+                new FacultySnapshot(1L, "Гриф", "Красный")));
+
+        // then
+        assertEquals("Слизерин", longestFacultyName.get());
+        verify(facultyRepository, times(2)).findLongestFaculty();
+    }
+
+    private void load(Long id, String name) {
+        FacultyIdName holder = row(id, name);
+        when(facultyRepository.findLongestFaculty()).thenReturn(Optional.of(holder));
+        longestFacultyName.reload();
+        assertTrue(longestFacultyName.isReady());
+    }
+
+    private static FacultyIdName row(Long id, String name) {
+        FacultyIdName row = mock(FacultyIdName.class);
+        lenient().when(row.getId()).thenReturn(id);
+        lenient().when(row.getName()).thenReturn(name);
+        return row;
+    }
+}
@@ -0,0 +1,76 @@
+package ru.hogwarts.school.stats;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.hogwarts.school.event.StudentChangedEvent;
+import ru.hogwarts.school.event.StudentSnapshot;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.StudentAgeTotals;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StudentAggregatesTest {
+
+    @Mock
+    private StudentRepository studentRepository;
+
+    @Spy
+    private StudentCommitGate commitGate = new StudentCommitGate();
+
+    @InjectMocks
+    private StudentAggregates studentAggregates;
+
+    @Test
+    void isReady_shouldBeFalseUntilSeeded() {
+        // when & then
+        assertFalse(studentAggregates.isReady());
+    }
+
+    @Test
+    void onStudentChanged_shouldMaintainCountAndAverage() {
+        // given
+        seed(2, 34);
+        Student created = new Student(3L, "Luna Lovegood", 16);
+        Student edited = new Student(3L, "Luna Lovegood", 20);
+
+        // when
+        studentAggregates.onStudentChanged(StudentChangedEvent.created(created));
+        studentAggregates.onStudentChanged(StudentChangedEvent.updated(StudentSnapshot.of(created), edited));
+
+        // then
+        assertEquals(3, studentAggregates.getCount());
+        assertEquals(18.0, studentAggregates.getAverageAge());
+
+        // when
+        studentAggregates.onStudentChanged(StudentChangedEvent.deleted(edited));
+
+        // then
+        assertEquals(2, studentAggregates.getCount());
+        assertEquals(17.0, studentAggregates.getAverageAge());
+    }
+
+    @Test
+    void getAverageAge_shouldReturnNullWhenNoStudents() {
+        // given
+        seed(0, 0);
+
+        // when & then
+        assertEquals(0, studentAggregates.getCount());
+        assertNull(studentAggregates.getAverageAge());
+    }
+
+    private void seed(long count, long ageSum) {
+        StudentAgeTotals totals = mock(StudentAgeTotals.class);
+        when(totals.getStudentCount()).thenReturn(count);
+        when(totals.getAgeSum()).thenReturn(ageSum);
+        when(studentRepository.findAgeTotals()).thenReturn(totals);
+        studentAggregates.reconcile();
+    }
+}
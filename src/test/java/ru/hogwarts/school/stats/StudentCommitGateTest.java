@@ -0,0 +1,153 @@
+package ru.hogwarts.school.stats;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.dto.FacultyStats;
+import ru.hogwarts.school.event.StudentChangedEvent;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Commits a student write from another thread right before a reconciliation runs its query, through the
+ * real transaction and event infrastructure, and checks the write is counted exactly once. Runs outside a test transaction so each write commits.
+ */
+@DataJpaTest(properties = {
+        "spring.liquibase.enabled=false",
+        "spring.sql.init.mode=never",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "ru.hogwarts.school.stats.StudentCommitGateTest$BeforeQuery"
+})
+@Import({StudentCommitGate.class, StudentAggregates.class, FacultyAgeStats.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StudentCommitGateTest {
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private FacultyRepository facultyRepository;
+
+    @Autowired
+    private StudentAggregates studentAggregates;
+
+    @Autowired
+    private FacultyAgeStats facultyAgeStats;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void tearDown() {
+        writer.shutdownNow();
+        studentRepository.deleteAll();
+        facultyRepository.deleteAll();
+    }
+
+    @Test
+    void reconcile_shouldCountWriteCommittedDuringReadOnce() throws Exception {
+        // given
+        createStudent(new Student(null, "Гарри Поттер", 17));
+        createStudent(new Student(null, "Рон Уизли", 17));
+        studentAggregates.reconcile();
+        AtomicReference<Future<?>> write = new AtomicReference<>();
+        BeforeQuery.next("sum(", () -> write.set(writeDuringQuery(new Student(null, "Полумна Лавгуд", 20))));
+
+        // when
+        studentAggregates.reconcile();
+        write.get().get(5, TimeUnit.SECONDS);
+
+        // then
+        assertEquals(3, studentAggregates.getCount());
+        assertEquals(18.0, studentAggregates.getAverageAge());
+    }
+
+    @Test
+    void reconcile_shouldAddStudentCommittedDuringFacultyReadOnce() throws Exception {
+        // given
+        Faculty gryffindor = facultyRepository.save(new Faculty(null, "Gryffindor", "Red"));
+        createStudent(new Student(null, "Гарри Поттер", 17, gryffindor));
+        createStudent(new Student(null, "Рон Уизли", 17, gryffindor));
+        facultyAgeStats.reconcile();
+        AtomicReference<Future<?>> write = new AtomicReference<>();
+        BeforeQuery.next("group by", () ->
+                write.set(writeDuringQuery(new Student(null, "Гермиона Грейнджер", 20, gryffindor))));
+
+        // when
+        facultyAgeStats.reconcile();
+        write.get().get(5, TimeUnit.SECONDS);
+
+        // then
+        assertEquals(List.of(new FacultyStats(gryffindor.getId(), 3L, 18.0, 17, 20)), facultyAgeStats.getStats());
+    }
+
+    private void createStudent(Student student) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                eventPublisher.publishEvent(StudentChangedEvent.created(studentRepository.save(student))));
+    }
+
+    /**
+     * Starts the write and gives it time to commit before the query runs, which it may only do once the
+     * reconciliation is over.
+     */
+    private Future<?> writeDuringQuery(Student student) {
+        Future<?> write = writer.submit(() -> createStudent(student));
+        try {
+            write.get(200, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // still waiting for the reconciliation to finish
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+        return write;
+    }
+
+    /**
+     * Runs an action on the querying thread right before the next statement containing a fragment.
+     */
+    public static class BeforeQuery implements StatementInspector {
+        private static final AtomicReference<Hook> next = new AtomicReference<>();
+
+        static void next(String sqlFragment, Runnable action) {
+            next.set(new Hook(sqlFragment, action));
+        }
+
+        @Override
+        public String inspect(String sql) {
+            Hook hook = next.get();
+            if (hook != null && sql.toLowerCase().contains(hook.sqlFragment()) && next.compareAndSet(hook, null)) {
+                hook.action().run();
+            }
+            return sql;
+        }
+
+        private record Hook(String sqlFragment, Runnable action) {
+        }
+    }
+}
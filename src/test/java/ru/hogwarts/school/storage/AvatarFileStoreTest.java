@@ -0,0 +1,109 @@
+package ru.hogwarts.school.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AvatarFileStoreTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void write_shouldStoreFileResolvableByReturnedPath() throws Exception {
+        // given
+        AvatarFileStore store = new AvatarFileStore(root);
+        byte[] bytes = {1, 2, 3, 4};
+
+        // when
+        String filePath = store.write(7L, "png", bytes);
+
+        // then
+        assertEquals("7.png", filePath);
+        Optional<Path> file = store.resolve(filePath);
+        assertTrue(file.isPresent());
+        assertArrayEquals(bytes, Files.readAllBytes(file.get()));
+    }
+
+    @Test
+    void stage_shouldHideFileUntilPublished() throws Exception {
+        // given
+        AvatarFileStore store = new AvatarFileStore(root);
+
+        // when
+        AvatarFileStore.StagedFile staged = store.stage(8L, "png", new byte[]{1, 2});
+
+        // then
+        assertTrue(store.resolve("8.png").isEmpty());
+
+        // when
+        store.publish(staged);
+        store.discard(staged);
+
+        // then
+        assertArrayEquals(new byte[]{1, 2}, Files.readAllBytes(store.resolve("8.png").orElseThrow()));
+        assertFalse(Files.exists(staged.temp()));
+    }
+
+    @Test
+    void discard_shouldDeleteStagedFileAndKeepPublishedVersion() throws Exception {
+        // given
+        AvatarFileStore store = new AvatarFileStore(root);
+        store.write(9L, "png", new byte[]{1});
+        AvatarFileStore.StagedFile staged = store.stage(9L, "png", new byte[]{2});
+
+        // when
+        store.discard(staged);
+
+        // then
+        assertFalse(Files.exists(staged.temp()));
+        assertArrayEquals(new byte[]{1}, Files.readAllBytes(store.resolve("9.png").orElseThrow()));
+    }
+
+    @Test
+    void delete_shouldRemoveStoredFileAndIgnoreMissingOnes() {
+        // given
+        AvatarFileStore store = new AvatarFileStore(root);
+        store.write(10L, "png", new byte[]{1});
+
+        // when
+        store.delete("10.png");
+        store.delete("10.png");
+        store.delete(null);
+
+        // then
+        assertTrue(store.resolve("10.png").isEmpty());
+    }
+
+    @Test
+    void resolve_shouldRejectPathsOutsideStoreAndMissingFiles() throws Exception {
+        // given
+        AvatarFileStore store = new AvatarFileStore(root.resolve("avatars"));
+        Files.write(root.resolve("secret.txt"), new byte[]{1});
+
+        // when & then
+        assertTrue(store.resolve("../secret.txt").isEmpty());
+        assertTrue(store.resolve("missing.png").isEmpty());
+        assertTrue(store.resolve(null).isEmpty());
+    }
+
+    @Test
+    void transfer_shouldCopyRequestedLength() throws Exception {
+        // given
+        AvatarFileStore store = new AvatarFileStore(root);
+        Path file = store.resolve(store.write(1L, "", new byte[]{5, 6, 7})).orElseThrow();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        store.transfer(file, 3, out);
+
+        // then
+        assertArrayEquals(new byte[]{5, 6, 7}, out.toByteArray());
+    }
+}
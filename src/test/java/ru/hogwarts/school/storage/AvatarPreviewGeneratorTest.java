@@ -0,0 +1,79 @@
+package ru.hogwarts.school.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AvatarPreviewGeneratorTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void findOrRender_shouldDownscaleKeepingAspectRatio() throws Exception {
+        // given
+        AvatarFileStore store = new AvatarFileStore(root);
+        AvatarPreviewGenerator generator = new AvatarPreviewGenerator(store, List.of(64), 1, 1);
+        String filePath = store.write(1L, "png", png(200, 100));
+
+        // when
+        Optional<Path> preview = generator.findOrRender(1L, filePath, 64);
+
+        // then
+        assertTrue(preview.isPresent());
+        BufferedImage image = ImageIO.read(preview.get().toFile());
+        assertEquals(64, image.getWidth());
+        assertEquals(32, image.getHeight());
+        assertEquals(1, generator.getStatistics().completed());
+        generator.shutdown();
+    }
+
+    @Test
+    void findOrRender_shouldCountUnreadableImagesAsFailed() {
+        // given
+        AvatarFileStore store = new AvatarFileStore(root);
+        AvatarPreviewGenerator generator = new AvatarPreviewGenerator(store, List.of(64), 1, 1);
+        String filePath = store.write(2L, "png", new byte[]{1, 2, 3});
+
+        // when
+        Optional<Path> preview = generator.findOrRender(2L, filePath, 64);
+
+        // then
+        assertTrue(preview.isEmpty());
+        assertEquals(1, generator.getStatistics().failed());
+        generator.shutdown();
+    }
+
+    @Test
+    void deletePreviews_shouldDeleteEveryConfiguredSizeAndKeepTheImage() throws Exception {
+        // given
+        AvatarFileStore store = new AvatarFileStore(root);
+        AvatarPreviewGenerator generator = new AvatarPreviewGenerator(store, List.of(32, 64), 1, 1);
+        String filePath = store.write(3L, "png", png(100, 100));
+        generator.findOrRender(3L, filePath, 32);
+        generator.findOrRender(3L, filePath, 64);
+
+        // when
+        generator.deletePreviews(3L);
+
+        // then
+        assertTrue(store.resolve("3-32.png").isEmpty());
+        assertTrue(store.resolve("3-64.png").isEmpty());
+        assertTrue(store.resolve(filePath).isPresent());
+        generator.shutdown();
+    }
+
+    private static byte[] png(int width, int height) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+}